@@ -0,0 +1,135 @@
+package com.crust87.videocropper;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.view.MotionEvent;
+
+import com.crust87.videotrackview.VideoTrackView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+public class AnchorOverlayDrawTest extends AndroidTestCase {
+    private static final long FRAME_BUDGET_NANOS = 16000000;
+    private static final int MOVE_COUNT = 120;
+    private static final float MOVE_STEP = 8;
+    private static final float DOWN_X = 900;	// right of the anchor, the drag moves the track
+
+    private AnchorOverlay mOverlay;
+    private VideoTrackView.Track mTrack;
+    private Canvas mCanvas;
+    private DragStats mStats;
+    private MotionEvent[] mEvents;		// down, moves and up of one drag, obtained before counting starts
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // the overlay's gesture detector and position dispatcher need a looper on this thread
+        if(Looper.myLooper() == null) {
+            Looper.prepare();
+        }
+
+        mOverlay = new AnchorOverlay(getContext());
+        mOverlay.onSurfaceChanged(1080, 264);
+        mOverlay.setOnUpdateAnchorListener(new AnchorOverlay.OnUpdateAnchorListener() {
+            @Override
+            public void onUpdatePositionStart() {
+            }
+
+            @Override
+            public void onUpdatePosition(int seek, int duration) {
+            }
+
+            @Override
+            public void onUpdatePositionEnd(int seek, int duration) {
+            }
+        });
+
+        mCanvas = new Canvas(Bitmap.createBitmap(1080, 264, Bitmap.Config.ARGB_8888));
+        mStats = new DragStats(new DragStats.AllocationCounter() {
+            @Override
+            public long getCount() {
+                return Debug.getThreadAllocCount();
+            }
+        });
+        mOverlay.setDragStats(mStats);
+
+        // left by half the moves, then back
+        long downTime = SystemClock.uptimeMillis();
+        mEvents = new MotionEvent[MOVE_COUNT + 2];
+        mEvents[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, DOWN_X, 100, 0);
+        float x = DOWN_X;
+        for(int i = 1; i <= MOVE_COUNT; i++) {
+            x += i <= MOVE_COUNT / 2 ? -MOVE_STEP : MOVE_STEP;
+            mEvents[i] = MotionEvent.obtain(downTime, downTime + i * 16, MotionEvent.ACTION_MOVE, x, 100, 0);
+        }
+        mEvents[MOVE_COUNT + 1] = MotionEvent.obtain(downTime, downTime + (MOVE_COUNT + 1) * 16, MotionEvent.ACTION_UP, x, 100, 0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for(MotionEvent event: mEvents) {
+            event.recycle();
+        }
+        mOverlay.release();
+
+        super.tearDown();
+    }
+
+    public void testDrag_doesNotAllocate() throws Exception {
+        openVideo();
+        assertDragDoesNotAllocate();
+    }
+
+    // the drag crosses several tiles, each change of the visible ones requests a new window from the loader
+    // the file can't be decoded, so the loader thread makes keys and fails while the drag goes on
+    public void testDragWithFilmstrip_doesNotAllocate() throws Exception {
+        File video = new File(getContext().getCacheDir(), "drag_test.mp4");
+        new FileOutputStream(video).close();
+        try {
+            mOverlay.setVideoPath(video.getAbsolutePath());
+            openVideo();
+            assertDragDoesNotAllocate();
+        } finally {
+            video.delete();
+        }
+    }
+
+    private void openVideo() {
+        mTrack = new VideoTrackView.Track();
+        mTrack.left = 0;
+        mTrack.right = 60000 * 0.036f;
+        mOverlay.onSetVideo(60000, 0.036f);
+    }
+
+    // every event goes through the touch handler with a frame drawn after it, as the track view does
+    private void assertDragDoesNotAllocate() {
+        // warm up
+        drag();
+
+        Debug.startAllocCounting();
+        try {
+            mStats.reset();
+            drag();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+
+        assertEquals(MOVE_COUNT + 2, mStats.getEventCount());
+        assertEquals(MOVE_COUNT + 2, mStats.getFrameCount());
+        assertEquals(0, mStats.getAllocations());
+        assertEquals(0, mStats.countSlowFrames(FRAME_BUDGET_NANOS));
+    }
+
+    private void drag() {
+        for(MotionEvent event: mEvents) {
+            mOverlay.onTrackTouchEvent(mTrack, event);
+            mOverlay.drawOverlay(mCanvas);
+        }
+    }
+}
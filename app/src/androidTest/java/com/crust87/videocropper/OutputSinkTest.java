@@ -0,0 +1,68 @@
+package com.crust87.videocropper;
+
+import android.os.ParcelFileDescriptor;
+import android.test.AndroidTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class OutputSinkTest extends AndroidTestCase {
+    // less than a pipe buffer, so it's written before the test reads it
+    private static final int OUTPUT_SIZE = 16 * 1024;
+
+    public void testPipeDescriptor_copiesStdoutAndStaysOpen() throws Exception {
+        ParcelFileDescriptor[] pipe = ParcelFileDescriptor.createPipe();
+        InputStream reader = new ParcelFileDescriptor.AutoCloseInputStream(pipe[0]);
+        try {
+            OutputSink sink = OutputSink.descriptor(pipe[1]);
+            assertEquals(OutputSink.PIPE_PATH, sink.getPath());
+            assertNull(sink.getStdoutFile());
+            assertTrue(sink.isFragmented());
+
+            CropCommandBuilder builder = new CropCommandBuilder().setInput("/in.mp4").setRange(0, 1000000);
+            sink.applyTo(builder);
+            assertEquals(OutputSink.PIPE_PATH, builder.getOutput());
+            assertTrue(builder.isFragmented());
+
+            byte[] output = new byte[OUTPUT_SIZE];
+            for(int i = 0; i < output.length; i++) {
+                output[i] = (byte) i;
+            }
+            sink.getOnReadProcessOutputListener().onReadProcessOutput(new ByteArrayInputStream(output));
+
+            byte[] read = new byte[OUTPUT_SIZE];
+            int offset = 0;
+            while(offset < read.length) {
+                int count = reader.read(read, offset, read.length - offset);
+                assertTrue(count > 0);
+                offset += count;
+            }
+            assertTrue(Arrays.equals(output, read));
+            assertTrue(pipe[1].getFileDescriptor().valid());
+        } finally {
+            pipe[1].close();
+            reader.close();
+        }
+    }
+
+    public void testFileDescriptor_isStdoutWhenItCanBeRedirected() throws Exception {
+        File file = new File(getContext().getCacheDir(), "sink_test.mp4");
+        ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_WRITE_ONLY | ParcelFileDescriptor.MODE_CREATE);
+        try {
+            OutputSink sink = OutputSink.descriptor(descriptor);
+            if(FFmpegRunner.canRedirect()) {
+                assertEquals(OutputSink.STDOUT_PATH, sink.getPath());
+                assertEquals(VideoSource.getDescriptorPath(descriptor), sink.getStdoutFile().getPath());
+                assertFalse(sink.isFragmented());
+            } else {
+                assertEquals(OutputSink.PIPE_PATH, sink.getPath());
+                assertTrue(sink.isFragmented());
+            }
+        } finally {
+            descriptor.close();
+            file.delete();
+        }
+    }
+}
@@ -21,27 +21,47 @@
 
 package com.crust87.videocropper;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Build;
+import android.view.Choreographer;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 
 import com.crust87.videotrackview.VideoTrackOverlay;
 import com.crust87.videotrackview.VideoTrackView;
 
 public class AnchorOverlay extends VideoTrackOverlay {
-    private enum ACTION_TYPE {anchor, normal, idle}	// touch event action type
+    private enum ACTION_TYPE {anchor, normal, zoom, idle}	// touch event action type
+
+    // finest thumbnail tiles, a tile is a frame wide at most zoom
+    private static final long BASE_TILE_INTERVAL_US = 100000;
 
     // Overlay Components
     private Anchor mAnchor;
     private Paint mDisablePaint;
     private Rect mDisableRect;
+    private FilmstripLoader mFilmstripLoader;
+    private TilePyramid mTilePyramid;		// tile levels of the video, null while no filmstrip is loaded
+    private Rect mFrameSrcRect;
+    private RectF mFrameRect;
+    private ScaleGestureDetector mScaleGestureDetector;
+    private KeyframeIndex mKeyframes;		// snap targets, null to drag freely
+    private RangeList mRanges;				// edit list, drawn over the track
+    private Paint mRangePaint;
+    private Rect mRangeRect;
 
     // Event Listener
     private OnUpdateAnchorListener mOnUpdateAnchorListener;
+    private OnUpdateRangesListener mOnUpdateRangesListener;
+    private UpdateDispatcher mUpdateDispatcher;
+    private DragStats mDragStats;
 
     // Attributes
     private int mDefaultAnchorPosition;
@@ -49,12 +69,20 @@ public class AnchorOverlay extends VideoTrackOverlay {
     private int mAnchorRound;
     private int mAnchorArea;
     private boolean isVideoOpen;
+    private String mVideoPath;
+    private float mMinMillisecondsPerWidth;	// zoom range, the whole video fits the track at the minimum
+    private float mMaxMillisecondsPerWidth;
 
     // Working Variables
     protected int currentPosition;			// current start position
     private int currentDuration;			// current duration position
     private ACTION_TYPE actionType;			// current touche event type
     protected float pastX;					// past position x of touch event
+    private float mDownX;					// position x of touch down, a touch that stays near it is a tap
+    private float mTrackLeft;				// track position of last touch event
+    private int mTrackWidth;				// visible width of track
+    private int mFrameWidth;				// filmstrip frame width
+    private VideoTrackView.Track mTrack;	// track of the touch event being handled, for the zoom listener
 
     // Constructors
     public AnchorOverlay(Context context) {
@@ -69,6 +97,21 @@ public class AnchorOverlay extends VideoTrackOverlay {
 
         mDisablePaint = new Paint(Color.parseColor("#000000"));
         mDisablePaint.setAlpha(128);
+
+        mRanges = new RangeList();
+        mRangePaint = new Paint();
+        mRangePaint.setColor(Color.parseColor("#ffcc00"));
+        mRangePaint.setAlpha(96);
+        mRangeRect = new Rect();
+
+        mFilmstripLoader = new FilmstripLoader(ThumbnailCache.getInstance(context));
+        mFrameSrcRect = new Rect();
+        mFrameRect = new RectF();
+        mScaleGestureDetector = new ScaleGestureDetector(context, new ZoomListener());
+
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mUpdateDispatcher = new UpdateDispatcher();
+        }
     }
 
     @Override
@@ -76,6 +119,7 @@ public class AnchorOverlay extends VideoTrackOverlay {
         super.onSurfaceChanged(width, height);
 
         mDisableRect = new Rect((int) mAnchor.position, 0, width, height);
+        mTrackWidth = width;
     }
 
     @Override
@@ -86,20 +130,49 @@ public class AnchorOverlay extends VideoTrackOverlay {
         currentDuration = (int) (mDefaultAnchorPosition / mMillisecondsPerWidth);
         mAnchor.position = mDefaultAnchorPosition;
         mDisableRect.left = mDefaultAnchorPosition;
+        mTrackLeft = 0;
+        mRanges.clear();
         isVideoOpen = true;
+
+        // square frames, zooming in goes down to a finest tile a frame wide
+        mFrameWidth = mHeight;
+        mMinMillisecondsPerWidth = mMillisecondsPerWidth;
+        mMaxMillisecondsPerWidth = Math.max(mMinMillisecondsPerWidth, mFrameWidth / (BASE_TILE_INTERVAL_US / 1000f));
+
+        // tile levels from the finest up to one covering a frame at the minimum zoom
+        mTilePyramid = null;
+        if(mVideoPath != null && mHeight > 0 && videoDuration > 0) {
+            mTilePyramid = new TilePyramid(videoDuration * 1000L, BASE_TILE_INTERVAL_US, (long) (mFrameWidth / mMinMillisecondsPerWidth * 1000));
+            mFilmstripLoader.load(mVideoPath, mTilePyramid, mFrameWidth, mHeight);
+        }
+    }
+
+    // path of the video the filmstrip is loaded from, call before FilmstripTrackView.setVideo
+    public void setVideoPath(String path) {
+        mVideoPath = path;
     }
 
     @Override
     public boolean onTrackTouchEvent(VideoTrackView.Track track, MotionEvent event) {
-        switch (event.getAction()) {
+        if(mDragStats != null) {
+            mDragStats.beginEvent();
+        }
+
+        mTrack = track;
+        mScaleGestureDetector.onTouchEvent(event);
+
+        float x = event.getX();
+
+        switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
                 if(mOnUpdateAnchorListener != null) {
                     mOnUpdateAnchorListener.onUpdatePositionStart();
                 }
-                pastX = event.getX();
+                pastX = x;
+                mDownX = x;
 
                 // check event type
-                if(mAnchor.contains(event.getX())) {
+                if(mAnchor.contains(x)) {
                     actionType = ACTION_TYPE.anchor;
                 } else {
                     actionType = ACTION_TYPE.normal;
@@ -108,26 +181,56 @@ public class AnchorOverlay extends VideoTrackOverlay {
                 // do event process
                 switch(actionType) {
                     case anchor:
-                        updateAnchorPosition(track, event.getX() - pastX);
-                        pastX = event.getX();
+                        updateAnchorPosition(track, x - pastX);
+                        pastX = x;
                         break;
                     case normal:
-                        updateTrackPosition(track, (int) (event.getX() - pastX));
-                        pastX = event.getX();
+                        updateTrackPosition(track, (int) (x - pastX));
+                        pastX = x;
+                        mTrackLeft = track.left;
                         break;
                 }
                 break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                // a second finger zooms, the track no longer follows the first one
+                actionType = ACTION_TYPE.zoom;
+                break;
             case MotionEvent.ACTION_UP:
                 if(mOnUpdateAnchorListener != null) {
+                    // deliver the last position at once instead of on next frame
+                    if(mUpdateDispatcher != null) {
+                        mUpdateDispatcher.cancel();
+                    }
+                    mOnUpdateAnchorListener.onUpdatePosition(currentPosition, currentDuration);
                     mOnUpdateAnchorListener.onUpdatePositionEnd(currentPosition, currentDuration);
                 }
+                if(actionType == ACTION_TYPE.normal && Math.abs(x - mDownX) < mAnchorArea) {
+                    removeRangeAt(track, x);
+                }
                 // action type to idle
                 actionType = ACTION_TYPE.idle;
         }
 
+        if(mDragStats != null) {
+            mDragStats.endEvent();
+        }
+
         return true;
     }
 
+    // position listener is called once a frame, however many touch samples arrive in it
+    private void notifyUpdatePosition() {
+        if(mOnUpdateAnchorListener == null) {
+            return;
+        }
+
+        if(mUpdateDispatcher != null) {
+            mUpdateDispatcher.schedule();
+        } else {
+            mOnUpdateAnchorListener.onUpdatePosition(currentPosition, currentDuration);
+        }
+    }
+
     // update track position
     // int x: it's actually delta x
     private void updateTrackPosition(VideoTrackView.Track track, float x) {
@@ -143,7 +246,7 @@ public class AnchorOverlay extends VideoTrackOverlay {
         track.left += x;
         track.right += x;
 
-        currentPosition = (int) -(track.left / mMillisecondsPerWidth);
+        currentPosition = snapToKeyframe((int) -(track.left / mMillisecondsPerWidth));
         if(x < 0) {
             int nextDuration = mVideoDuration - currentPosition;
             currentDuration = nextDuration > currentDuration ? currentDuration : nextDuration;
@@ -151,9 +254,7 @@ public class AnchorOverlay extends VideoTrackOverlay {
             mDisableRect.left = (int) mAnchor.position;
         }
 
-        if(mOnUpdateAnchorListener != null) {
-            mOnUpdateAnchorListener.onUpdatePosition(currentPosition, currentDuration);
-        }
+        notifyUpdatePosition();
     }
 
     private void updateAnchorPosition(VideoTrackView.Track track, float x) {
@@ -170,27 +271,176 @@ public class AnchorOverlay extends VideoTrackOverlay {
         mDisableRect.left = (int) mAnchor.position;
 
         currentDuration = (int) (mAnchor.position / mMillisecondsPerWidth);
-        if(mOnUpdateAnchorListener != null) {
-            mOnUpdateAnchorListener.onUpdatePosition(currentPosition, currentDuration);
+        int endPosition = snapToKeyframe(currentPosition + currentDuration);
+        if(endPosition > currentPosition) {
+            currentDuration = endPosition - currentPosition;
+        }
+        notifyUpdatePosition();
+    }
+
+    // scale the track around focusX, the time under it stays there
+    // the selection starts at the left edge as it does while dragging, and keeps its duration as far as the track shows it
+    private void zoomTrack(VideoTrackView.Track track, float scale, float focusX) {
+        float millisecondsPerWidth = Math.max(mMinMillisecondsPerWidth, Math.min(mMaxMillisecondsPerWidth, mMillisecondsPerWidth * scale));
+        if(millisecondsPerWidth == mMillisecondsPerWidth) {
+            return;
+        }
+
+        float focusMs = (focusX - track.left) / mMillisecondsPerWidth;
+        float trackWidth = mVideoDuration * millisecondsPerWidth;
+        mMillisecondsPerWidth = millisecondsPerWidth;
+
+        track.left = Math.max(-trackWidth, Math.min(0, focusX - focusMs * mMillisecondsPerWidth));
+        track.right = track.left + trackWidth;
+        mTrackLeft = track.left;
+
+        currentPosition = snapToKeyframe((int) -(track.left / mMillisecondsPerWidth));
+        currentDuration = Math.min(currentDuration, Math.min(mVideoDuration - currentPosition, (int) (mTrackWidth / mMillisecondsPerWidth)));
+        mAnchor.position = currentDuration * mMillisecondsPerWidth;
+        mDisableRect.left = (int) mAnchor.position;
+
+        notifyUpdatePosition();
+    }
+
+    // nearest key frame when it's within touch area of the position, the position itself otherwise
+    // the track and anchor keep following the finger, only reported times snap
+    private int snapToKeyframe(int position) {
+        if(mKeyframes == null) {
+            return position;
+        }
+
+        long keyframeUs = mKeyframes.nearest(position * 1000L);
+        if(keyframeUs < 0) {
+            return position;
+        }
+
+        int keyframe = (int) (keyframeUs / 1000);
+        return Math.abs(keyframe - position) * mMillisecondsPerWidth <= mAnchorArea ? keyframe : position;
+    }
+
+    // add the current selection to the edit list, merged with ranges it overlaps
+    public void addCurrentRange() {
+        if(!isVideoOpen || currentDuration <= 0) {
+            return;
+        }
+
+        mRanges.add(currentPosition * 1000L, (currentPosition + currentDuration) * 1000L);
+        notifyUpdateRanges();
+    }
+
+    public void clearRanges() {
+        mRanges.clear();
+        notifyUpdateRanges();
+    }
+
+    // edit list of the track, changed by the overlay, copy it to keep it
+    public RangeList getRanges() {
+        return mRanges;
+    }
+
+    // a tap on a range of the edit list removes it
+    private void removeRangeAt(VideoTrackView.Track track, float x) {
+        int index = mRanges.indexOf((long) ((x - track.left) / mMillisecondsPerWidth * 1000));
+        if(index >= 0) {
+            mRanges.remove(index);
+            notifyUpdateRanges();
         }
     }
 
+    private void notifyUpdateRanges() {
+        if(mOnUpdateRangesListener != null) {
+            mOnUpdateRangesListener.onUpdateRanges(mRanges);
+        }
+    }
+
+    // snap seek and end of the selection to key frames, cuts there can be copied without encoding
+    public void setKeyframes(KeyframeIndex keyframes) {
+        mKeyframes = keyframes;
+    }
+
     @Override
     public void drawOverlay(Canvas canvas) {
         if(isVideoOpen) {
+            if(mDragStats != null) {
+                mDragStats.beginFrame();
+            }
+
+            drawFilmstrip(canvas);
+            drawRanges(canvas);
             canvas.drawRect(mDisableRect, mDisablePaint);
             mAnchor.draw(canvas);
+
+            if(mDragStats != null) {
+                mDragStats.endFrame();
+            }
         }
     }
 
+    // draw loaded tiles in the visible part of the track
+    // tiles come from the coarsest level no wider than a square frame, so their count on screen doesn't depend on zoom or video length
+    private void drawFilmstrip(Canvas canvas) {
+        if(mTilePyramid == null) {
+            return;
+        }
+
+        int level = mTilePyramid.getLevel((long) (mFrameWidth / mMillisecondsPerWidth * 1000));
+        int first = mTilePyramid.getIndex(level, (long) (-mTrackLeft / mMillisecondsPerWidth * 1000));
+        int last = mTilePyramid.getIndex(level, (long) ((-mTrackLeft + mTrackWidth) / mMillisecondsPerWidth * 1000));
+        mFilmstripLoader.request(level, first, last);
+
+        float tileWidth = mTilePyramid.getIntervalUs(level) / 1000f * mMillisecondsPerWidth;
+        for(int i = first; i <= last; i++) {
+            Bitmap frame = mFilmstripLoader.getTile(level, i);
+            if(frame == null) {
+                // until it's loaded, the tile of the level above at the same or the previous time
+                frame = mFilmstripLoader.getTile(level + 1, i / 2);
+            }
+
+            if(frame != null) {
+                // a tile narrower than a frame shows the middle of it
+                int sourceWidth = Math.min(frame.getWidth(), Math.round(frame.getWidth() * tileWidth / mFrameWidth));
+                int sourceLeft = (frame.getWidth() - sourceWidth) / 2;
+                mFrameSrcRect.set(sourceLeft, 0, sourceLeft + sourceWidth, frame.getHeight());
+
+                float left = mTrackLeft + mTilePyramid.getTimeUs(level, i) / 1000f * mMillisecondsPerWidth;
+                mFrameRect.set(left, 0, left + tileWidth, mHeight);
+                canvas.drawBitmap(frame, mFrameSrcRect, mFrameRect, null);
+            }
+        }
+    }
+
+    // draw ranges of the edit list in the visible part of the track, the first one is found by binary search
+    private void drawRanges(Canvas canvas) {
+        long visibleStartUs = (long) (-mTrackLeft / mMillisecondsPerWidth * 1000);
+        long visibleEndUs = (long) ((-mTrackLeft + mTrackWidth) / mMillisecondsPerWidth * 1000);
+
+        for(int i = mRanges.firstEndingAfter(visibleStartUs); i < mRanges.size() && mRanges.getStartUs(i) < visibleEndUs; i++) {
+            int left = (int) (mTrackLeft + mRanges.getStartUs(i) / 1000 * mMillisecondsPerWidth);
+            int right = (int) (mTrackLeft + mRanges.getEndUs(i) / 1000 * mMillisecondsPerWidth);
+            mRangeRect.set(left, 0, right, mHeight);
+            canvas.drawRect(mRangeRect, mRangePaint);
+        }
+    }
+
+    public void setOnFrameLoadedListener(FilmstripLoader.OnFrameLoadedListener onFrameLoadedListener) {
+        mFilmstripLoader.setOnFrameLoadedListener(onFrameLoadedListener);
+    }
+
+    // stop loading frames
+    public void release() {
+        mFilmstripLoader.release();
+    }
+
     // Track anchor class
     private class Anchor {
         private Paint mAnchorPaint;
+        private RectF mAnchorRect;
         public float position;
 
         public Anchor() {
             mAnchorPaint = new Paint();
             mAnchorPaint.setColor(Color.parseColor("#ffffff"));
+            mAnchorRect = new RectF();
         }
 
         public boolean contains(float x) {
@@ -202,18 +452,73 @@ public class AnchorOverlay extends VideoTrackOverlay {
         }
 
         public void draw(Canvas canvas) {
-            canvas.drawRoundRect(new RectF(position, 0, position + mAnchorWidth, mHeight), mAnchorRound, mAnchorRound, mAnchorPaint);
+            mAnchorRect.set(position, 0, position + mAnchorWidth, mHeight);
+            canvas.drawRoundRect(mAnchorRect, mAnchorRound, mAnchorRound, mAnchorPaint);
         }
     }
 
+    // pinch on the track
+    private class ZoomListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            if(isVideoOpen && mTrack != null) {
+                zoomTrack(mTrack, detector.getScaleFactor(), detector.getFocusX());
+            }
+
+            return true;
+        }
+    }
+
+    // Vsync dispatcher of position listener
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class UpdateDispatcher implements Choreographer.FrameCallback {
+        private boolean isPending;
+
+        public void schedule() {
+            if(!isPending) {
+                isPending = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        public void cancel() {
+            if(isPending) {
+                isPending = false;
+                Choreographer.getInstance().removeFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isPending = false;
+            if(mOnUpdateAnchorListener != null) {
+                mOnUpdateAnchorListener.onUpdatePosition(currentPosition, currentDuration);
+            }
+        }
+    }
+
+    // instrumentation of touch handling and drawing, null to turn it off
+    public void setDragStats(DragStats dragStats) {
+        mDragStats = dragStats;
+    }
+
     public void setOnUpdateAnchorListener(OnUpdateAnchorListener onUpdateAnchorListener) {
         mOnUpdateAnchorListener = onUpdateAnchorListener;
     }
 
+    public void setOnUpdateRangesListener(OnUpdateRangesListener onUpdateRangesListener) {
+        mOnUpdateRangesListener = onUpdateRangesListener;
+    }
+
     // video time position change listener
     public interface OnUpdateAnchorListener {
         void onUpdatePositionStart();
         void onUpdatePosition(int seek, int duration);
         void onUpdatePositionEnd(int seek, int duration);
     }
+
+    // edit list change listener, called on ui thread
+    public interface OnUpdateRangesListener {
+        void onUpdateRanges(RangeList ranges);
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Audio of a source extracted once to an AAC file, for many crops of the same clip.
+ * Crops copy it with a packet aligned seek instead of cutting or encoding the source's audio every time.
+ * Files are kept in the cache under a disk budget, least recently used first out.
+ */
+public class AudioExtractor {
+    public static final String DISK_DIR = "audio";
+
+    private static final long DISK_MAX_BYTES = 128L * 1024 * 1024;
+    private static final String PART_SUFFIX = ".part";
+
+    // a job waiting for another extraction of its source checks for cancel this often
+    private static final long LOCK_POLL_MS = 200;
+
+    private static AudioExtractor sInstance;
+
+    // Components
+    private final File mDiskDir;
+
+    // Working Variables
+    private final ConcurrentHashMap<String, ReentrantLock> mLocks;	// per audio file, one entry for each source ever extracted
+
+    public static synchronized AudioExtractor getInstance(Context context) {
+        if(sInstance == null) {
+            sInstance = new AudioExtractor(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    // Constructors
+    private AudioExtractor(Context context) {
+        mDiskDir = new File(context.getCacheDir(), DISK_DIR);
+        mLocks = new ConcurrentHashMap<>();
+    }
+
+    // extracted audio of the input, made on the first call, null when it fails or the job is cancelled
+    // runs as part of the job so cancel and pause reach it, do not call on main thread
+    // a second job on the same source waits for the extraction and takes the file, other sources don't wait
+    public File extract(CropQueue queue, CropJob job, String inputPath, String audioMime) {
+        File audio = getAudioFile(inputPath);
+        ReentrantLock lock = getLock(audio);
+        try {
+            // cancel kills the job's runners, a job waiting here has none, so it's checked while waiting
+            while(!lock.tryLock(LOCK_POLL_MS, TimeUnit.MILLISECONDS)) {
+                if(job.isCancelled()) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        try {
+            return extract(queue, job, inputPath, audioMime, audio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock getLock(File audio) {
+        ReentrantLock lock = mLocks.get(audio.getName());
+        if(lock == null) {
+            ReentrantLock newLock = new ReentrantLock();
+            lock = mLocks.putIfAbsent(audio.getName(), newLock);
+            if(lock == null) {
+                lock = newLock;
+            }
+        }
+
+        return lock;
+    }
+
+    private File extract(CropQueue queue, CropJob job, String inputPath, String audioMime, File audio) {
+        if(audio.length() > 0) {
+            CacheFiles.touch(audio);
+            return audio;
+        }
+
+        if(!mDiskDir.isDirectory() && !mDiskDir.mkdirs()) {
+            return null;
+        }
+
+        File part = new File(audio.getPath() + PART_SUFFIX);
+        try {
+            boolean copy = CropCommandBuilder.AUDIO_MIME_COPY.equals(audioMime);
+            queue.execute(job, CropCommandBuilder.buildAudioExtract(inputPath, part.getAbsolutePath(), copy));
+
+            if(part.length() > 0 && part.renameTo(audio)) {
+                trim();
+                return audio;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            part.delete();
+        }
+
+        return null;
+    }
+
+    // delete least recently used files over the budget, the newest stays
+    // files of other sources may be written meanwhile, part files are left to their extraction
+    private synchronized void trim() {
+        File[] files = mDiskDir.listFiles();
+        if(files == null) {
+            return;
+        }
+
+        CacheFiles.trim(files, CacheFiles.getTotalBytes(files), DISK_MAX_BYTES, true);
+    }
+
+    // name follows the source path, size and modified time, so an edited source is extracted again
+    private File getAudioFile(String inputPath) {
+        File input = new File(inputPath);
+        String key = VideoSource.getStableKey(inputPath) + '@' + input.length() + '@' + input.lastModified();
+
+        return new File(mDiskDir, CacheFiles.hash(key) + ".m4a");
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * File naming and eviction shared by the disk caches.
+ * Files are named by the SHA-1 of their key, and a file's last modified time is its LRU order:
+ * a cache touches a file on every hit and trims the oldest ones first.
+ */
+final class CacheFiles {
+    private CacheFiles() {
+    }
+
+    // hex SHA-1 of the key, for file names
+    static String hash(String key) {
+        try {
+            return toHex(newDigest().digest(key.getBytes("UTF-8")));
+        } catch (IOException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b: bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return hex.toString();
+    }
+
+    // mark a cached file used, it's trimmed last
+    static void touch(File file) {
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    // total length of the files, null entries are skipped
+    static long getTotalBytes(File[] files) {
+        long total = 0;
+        for(File file: files) {
+            if(file != null) {
+                total += file.length();
+            }
+        }
+
+        return total;
+    }
+
+    // delete least recently used files until the total is at most targetBytes
+    // File[] files: entries may be null, they are skipped
+    // boolean keepNewest: the most recently used file stays even over the target, it's the one just added
+    // return total bytes left
+    static long trim(File[] files, long totalBytes, long targetBytes, boolean keepNewest) {
+        final long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for(int i = 0; i < files.length; i++) {
+            modified[i] = files[i] != null ? files[i].lastModified() : Long.MIN_VALUE;
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return modified[lhs] < modified[rhs] ? -1 : (modified[lhs] == modified[rhs] ? 0 : 1);
+            }
+        });
+
+        int end = keepNewest ? order.length - 1 : order.length;
+        for(int i = 0; i < end && totalBytes > targetBytes; i++) {
+            File file = files[order[i]];
+            if(file != null) {
+                long length = file.length();
+                if(file.delete()) {
+                    totalBytes -= length;
+                }
+            }
+        }
+
+        return totalBytes;
+    }
+}
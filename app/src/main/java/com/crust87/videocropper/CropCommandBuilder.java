@@ -0,0 +1,1045 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.crust87.videocropper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds ffmpeg arguments for a crop job.
+ * Plain Java without Android dependencies, so it can be unit tested and benchmarked on a desktop JVM.
+ */
+public class CropCommandBuilder {
+    // decoded lead-in before an exact seek
+    public static final long SEEK_PREROLL_US = 5000000;
+
+    // long side of the scaled output
+    public static final int SCALE_LONG_SIDE = 640;
+
+    // default encode
+    public static final String VIDEO_PROFILE = "baseline";
+    public static final String VIDEO_LEVEL = "3.1";
+    public static final String VIDEO_BITRATE = "1000k";
+
+    // audio encode, for edit lists and sources whose audio can't be copied
+    public static final String AUDIO_CODEC = "aac";
+    public static final String AUDIO_BITRATE = "128k";
+
+    // audio that is copied, the MP4 muxer and the aac_adtstoasc of MPEG-TS joins both take AAC
+    public static final String AUDIO_MIME_COPY = "audio/mp4a-latm";
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    // Attributes
+    private String mInputPath;
+    private String mOutputPath;
+    private int mVideoWidth;
+    private int mVideoHeight;
+    private int mRotate;
+    private int mCropX;
+    private int mCropY;
+    private int mCropWidth;
+    private int mCropHeight;
+    private int mRatioWidth;
+    private int mRatioHeight;
+    private long mSeekUs;
+    private long mDurationUs;
+    private boolean mExactSeek;
+    private KeyframeIndex mKeyframes;		// null when the source isn't probed
+    private EncodePreset mEncodePreset;	// null for x264 defaults
+    private List<Rendition> mRenditions;	// null without a rendition ladder
+    private RangeList mRanges;			// null for the single range of setRange
+    private boolean mHasAudio;
+    private String mAudioMime;			// null when not probed, the audio is copied then
+    private boolean mDropAudio;
+    private String mAudioInputPath;		// audio extracted from the input, null to take the input's
+    private String mOutputFormat;		// null to take the format from the output extension
+    private boolean mFragmented;
+
+    // Working Variables
+    private final StringBuilder mBuffer;
+
+    // Constructors
+    public CropCommandBuilder() {
+        mBuffer = new StringBuilder(64);
+        mExactSeek = true;
+        mHasAudio = true;
+    }
+
+    public CropCommandBuilder setInput(String inputPath) {
+        mInputPath = inputPath;
+        return this;
+    }
+
+    public CropCommandBuilder setOutput(String outputPath) {
+        mOutputPath = outputPath;
+        return this;
+    }
+
+    // muxer of the output, for paths without an extension such as pipe:1 or a descriptor
+    public CropCommandBuilder setOutputFormat(String outputFormat) {
+        mOutputFormat = outputFormat;
+        return this;
+    }
+
+    // write MP4 fragments at key frames behind an empty moov, so the output is never seeked back
+    // a pipe or socket can take it, and a reader can use each fragment while encoding goes on
+    public CropCommandBuilder setFragmented(boolean fragmented) {
+        mFragmented = fragmented;
+        return this;
+    }
+
+    public boolean isFragmented() {
+        return mFragmented;
+    }
+
+    // size of the stored video frame, before rotation
+    public CropCommandBuilder setVideoSize(int width, int height) {
+        mVideoWidth = width;
+        mVideoHeight = height;
+        return this;
+    }
+
+    // rotation of the video in degrees, 0, 90, 180 or 270
+    public CropCommandBuilder setRotate(int rotate) {
+        mRotate = rotate;
+        return this;
+    }
+
+    // crop rectangle as displayed, after rotation
+    public CropCommandBuilder setCrop(int x, int y, int width, int height) {
+        mCropX = x;
+        mCropY = y;
+        mCropWidth = width;
+        mCropHeight = height;
+        return this;
+    }
+
+    // output ratio, 0:0 keeps the original frame without crop
+    public CropCommandBuilder setRatio(int width, int height) {
+        mRatioWidth = width;
+        mRatioHeight = height;
+        return this;
+    }
+
+    public CropCommandBuilder setRange(long seekUs, long durationUs) {
+        mSeekUs = seekUs;
+        mDurationUs = durationUs;
+        return this;
+    }
+
+    // several ranges joined in one run, the seek and duration become the first start and the joined length
+    // the list is copied, later changes of the caller don't reach the job
+    public CropCommandBuilder setRanges(RangeList ranges) {
+        if(ranges == null || ranges.size() == 0) {
+            mRanges = null;
+            return this;
+        }
+
+        mRanges = new RangeList(ranges);
+        mSeekUs = mRanges.getStartUs(0);
+        mDurationUs = mRanges.getDurationUs();
+        return this;
+    }
+
+    // more than one range, a single one is a plain seek and duration
+    public boolean hasRanges() {
+        return mRanges != null && mRanges.size() > 1;
+    }
+
+    // the source has an audio track, an edit list filters it along with the video
+    public CropCommandBuilder setHasAudio(boolean hasAudio) {
+        mHasAudio = hasAudio;
+        return this;
+    }
+
+    // codec of the input's audio track, audio other than AAC is encoded
+    public CropCommandBuilder setAudioMime(String audioMime) {
+        mAudioMime = audioMime;
+        return this;
+    }
+
+    public String getAudioMime() {
+        return mAudioMime;
+    }
+
+    // output without audio
+    public CropCommandBuilder setDropAudio(boolean dropAudio) {
+        mDropAudio = dropAudio;
+        return this;
+    }
+
+    public boolean isDropAudio() {
+        return mDropAudio;
+    }
+
+    // AAC audio of the input extracted once by buildAudioExtract, copied instead of the input's audio
+    // it's seeked with the video, so its packet aligned cut needs no decode, edit lists still filter the input's audio
+    public CropCommandBuilder setAudioInput(String audioInputPath) {
+        mAudioInputPath = audioInputPath;
+        return this;
+    }
+
+    // audio can be copied, the codec is AAC, unknown, or comes from the extracted input
+    public boolean canCopyAudio() {
+        return hasAudioInput() || mAudioMime == null || AUDIO_MIME_COPY.equals(mAudioMime);
+    }
+
+    private boolean hasAudioInput() {
+        return mAudioInputPath != null && !mDropAudio;
+    }
+
+    // decode a short lead-in after the coarse input seek, so the cut is frame accurate
+    public CropCommandBuilder setExactSeek(boolean exactSeek) {
+        mExactSeek = exactSeek;
+        return this;
+    }
+
+    // key frames of the input, an exact seek then starts decoding at the key frame before the cut instead of a fixed lead-in
+    public CropCommandBuilder setKeyframes(KeyframeIndex keyframes) {
+        mKeyframes = keyframes;
+        return this;
+    }
+
+    public KeyframeIndex getKeyframes() {
+        return mKeyframes;
+    }
+
+    // x264 preset, tune, threads and CRF of every encode of the job
+    public CropCommandBuilder setEncodePreset(EncodePreset encodePreset) {
+        mEncodePreset = encodePreset;
+        return this;
+    }
+
+    // add an output to the rendition ladder
+    // with renditions the job decodes and crops once and writes every rendition in the same run, the output path is not used
+    public CropCommandBuilder addRendition(Rendition rendition) {
+        if(mRenditions == null) {
+            mRenditions = new ArrayList<>(4);
+        }
+        mRenditions.add(rendition);
+        return this;
+    }
+
+    public CropCommandBuilder clearRenditions() {
+        mRenditions = null;
+        return this;
+    }
+
+    public boolean hasRenditions() {
+        return mRenditions != null && !mRenditions.isEmpty();
+    }
+
+    public List<Rendition> getRenditions() {
+        return mRenditions == null ? Collections.<Rendition>emptyList() : Collections.unmodifiableList(mRenditions);
+    }
+
+    public String getInput() {
+        return mInputPath;
+    }
+
+    // output path, the first rendition for a rendition ladder
+    public String getOutput() {
+        if(mOutputPath == null && hasRenditions()) {
+            return mRenditions.get(0).getOutputPath();
+        }
+
+        return mOutputPath;
+    }
+
+    // every output path, the renditions of a ladder or the single output
+    public List<String> getOutputs() {
+        if(!hasRenditions()) {
+            return Collections.singletonList(mOutputPath);
+        }
+
+        List<String> outputs = new ArrayList<>(mRenditions.size());
+        for(Rendition rendition: mRenditions) {
+            outputs.add(rendition.getOutputPath());
+        }
+
+        return outputs;
+    }
+
+    public long getSeekUs() {
+        return mSeekUs;
+    }
+
+    public long getDurationUs() {
+        return mDurationUs;
+    }
+
+    // parameters that decide the output, without the output path
+    // equal keys give equal outputs, crop is left out of trim only jobs
+    public String getJobKey() {
+        return mInputPath + '|' + getParameterKey();
+    }
+
+    // job parameters without the input, for keys that name the input by its content
+    public String getParameterKey() {
+        StringBuilder key = new StringBuilder(128);
+
+        if(isTrimOnly()) {
+            key.append("copy");
+        } else if(hasRenditions()) {
+            // the encode options of each rendition, as putRenditions writes them with the preset
+            key.append(buildRenditionFilter());
+            List<String> encode = new ArrayList<>(16);
+            for(Rendition rendition: mRenditions) {
+                key.append('|');
+                encode.clear();
+                putVideoEncode(encode, rendition.getProfile(), rendition.getLevel(), rendition.getBitrate());
+                for(String option: encode) {
+                    key.append(option).append(' ');
+                }
+            }
+        } else {
+            key.append(hasRanges() ? buildRangeFilter(0) : buildFilter());
+            key.append('|');
+            List<String> encode = new ArrayList<>(8);
+            putVideoEncode(encode);
+            for(String option: encode) {
+                key.append(option).append(' ');
+            }
+        }
+
+        if(mFragmented) {
+            key.append("|fragmented");
+        }
+        key.append('|').append(mDropAudio ? "an" : canCopyAudio() ? "copy" : AUDIO_CODEC);
+        key.append('|').append(mSeekUs).append('|').append(mDurationUs);
+
+        return key.toString();
+    }
+
+    // no crop filter, no renditions and a single range, so the streams can be copied without encoding
+    public boolean isTrimOnly() {
+        return !hasCrop() && !hasRenditions() && !hasRanges();
+    }
+
+    public boolean hasCrop() {
+        return mRatioWidth > 0 && mRatioHeight > 0;
+    }
+
+    // command for the whole job
+    // a trim only job copies streams from the key frame at the seek, the caller should snap the seek to it
+    public List<String> build() {
+        checkState();
+
+        List<String> commands = new ArrayList<>(DEFAULT_CAPACITY);
+        commands.add("-y");
+
+        if(hasRenditions()) {
+            putRenditions(commands);
+            return Collections.unmodifiableList(commands);
+        }
+
+        if(hasRanges()) {
+            putRanges(commands);
+            putOutput(commands, mOutputPath, mOutputFormat, mFragmented);
+            return Collections.unmodifiableList(commands);
+        }
+
+        if(isTrimOnly()) {
+            putSeek(commands, mSeekUs, false);
+            putDuration(commands, mDurationUs);
+            putCopy(commands);
+            commands.add("-avoid_negative_ts");
+            commands.add("make_zero");
+        } else {
+            putSeek(commands, mSeekUs, mExactSeek);
+            putDuration(commands, mDurationUs);
+            putVideoEncode(commands);
+            commands.add("-vf");
+            commands.add(buildFilter());
+            putAudio(commands);
+        }
+
+        putOutput(commands, mOutputPath, mOutputFormat, mFragmented);
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // MPEG-TS part of a smart cut or a segmented encode
+    // boolean copy: copy the streams, otherwise the part is encoded with the crop filter if any
+    public List<String> buildSegment(long fromUs, long toUs, String outputPath, boolean copy) {
+        checkState();
+
+        List<String> commands = new ArrayList<>(DEFAULT_CAPACITY);
+        commands.add("-y");
+        putSeek(commands, fromUs, !copy && mExactSeek);
+        putDuration(commands, toUs - fromUs);
+
+        if(copy) {
+            putCopy(commands);
+        } else {
+            putVideoEncode(commands);
+            if(hasCrop()) {
+                commands.add("-vf");
+                commands.add(buildFilter());
+            }
+            putAudio(commands);
+        }
+
+        putTransportStream(commands, outputPath);
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // encoded head or tail of a smart cut, in the profile, level and bitrate of the source so it joins the copied middle
+    // the part has no filter, so it keeps the source's frame size, the preset's speed is taken and its CRF isn't
+    public List<String> buildSmartCutEdge(long fromUs, long toUs, String outputPath, VideoFormat format) {
+        checkState();
+
+        List<String> commands = new ArrayList<>(DEFAULT_CAPACITY);
+        commands.add("-y");
+        putSeek(commands, fromUs, mExactSeek);
+        putDuration(commands, toUs - fromUs);
+
+        EncodePreset preset = mEncodePreset != null ? new EncodePreset(mEncodePreset.getPreset(), mEncodePreset.getTune(), mEncodePreset.getThreads(), 0) : null;
+        putVideoEncode(commands, format.getProfile(), format.getLevel(), format.getBitrateOption(), preset);
+        commands.add("-pix_fmt");
+        commands.add("yuv420p");
+        putAudio(commands);
+
+        putTransportStream(commands, outputPath);
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // every part carries its SPS/PPS in band at its key frames
+    private static void putTransportStream(List<String> commands, String outputPath) {
+        commands.add("-bsf:v");
+        commands.add("h264_mp4toannexb");
+        commands.add("-f");
+        commands.add("mpegts");
+        commands.add(outputPath);
+    }
+
+    // join parts listed in a concat demuxer list file into the output of the job
+    public List<String> buildConcat(String listPath) {
+        return buildConcat(listPath, getOutput(), mOutputFormat, mFragmented);
+    }
+
+    // join parts listed in a concat demuxer list file
+    public static List<String> buildConcat(String listPath, String outputPath) {
+        return buildConcat(listPath, outputPath, null, false);
+    }
+
+    private static List<String> buildConcat(String listPath, String outputPath, String outputFormat, boolean fragmented) {
+        List<String> commands = new ArrayList<>(12);
+        commands.add("-y");
+        commands.add("-f");
+        commands.add("concat");
+        commands.add("-safe");
+        commands.add("0");
+        commands.add("-i");
+        commands.add(listPath);
+        commands.add("-c");
+        commands.add("copy");
+        commands.add("-bsf:a");
+        commands.add("aac_adtstoasc");
+        putOutput(commands, outputPath, outputFormat, fragmented);
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // small preview copy with a short GOP, so seeking it decodes only a few frames
+    // int longSide: long side of the proxy frame, the short side keeps the aspect ratio
+    // String audioMime: codec of the input's audio, audio MP4 can't hold is encoded as in crops, null when there is none
+    public static List<String> buildProxy(String inputPath, String outputPath, int longSide, int gopSize, String audioMime) {
+        List<String> commands = new ArrayList<>(24);
+        commands.add("-y");
+        commands.add("-i");
+        commands.add(inputPath);
+        commands.add("-vf");
+        commands.add("scale=w='if(gt(iw,ih)," + longSide + ",-2)':h='if(gt(iw,ih),-2," + longSide + ")'");
+        commands.add("-vcodec");
+        commands.add("libx264");
+        commands.add("-preset");
+        commands.add("ultrafast");
+        commands.add("-crf");
+        commands.add("28");
+        commands.add("-g");
+        commands.add(String.valueOf(gopSize));
+        if(audioMime == null || AUDIO_MIME_COPY.equals(audioMime)) {
+            commands.add("-c:a");
+            commands.add("copy");
+        } else {
+            putAudioEncode(commands);
+        }
+        commands.add("-f");
+        commands.add("mp4");
+        commands.add(outputPath);
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // audio of the input alone, copied when it's AAC and encoded to AAC otherwise
+    // crops of the same input then copy it with a packet aligned seek, see setAudioInput
+    public static List<String> buildAudioExtract(String inputPath, String outputPath, boolean copy) {
+        List<String> commands = new ArrayList<>(16);
+        commands.add("-y");
+        commands.add("-i");
+        commands.add(inputPath);
+        commands.add("-map");
+        commands.add("0:a:0");
+        if(copy) {
+            commands.add("-c:a");
+            commands.add("copy");
+        } else {
+            putAudioEncode(commands);
+        }
+        commands.add("-f");
+        commands.add("mp4");
+        commands.add(outputPath);
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // decode key frames only and print their times, see KeyframeIndex.parseShowInfoTime
+    public static List<String> buildKeyframeProbe(String inputPath) {
+        List<String> commands = new ArrayList<>(16);
+        commands.add("-skip_frame");
+        commands.add("nokey");
+        commands.add("-i");
+        commands.add(inputPath);
+        commands.add("-an");
+        commands.add("-sn");
+        commands.add("-vf");
+        commands.add("showinfo");
+        commands.add("-f");
+        commands.add("null");
+        commands.add("-");
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // encode a generated clip and throw it away, to measure encode speed of a preset
+    public static List<String> buildCalibration(int width, int height, long durationUs, EncodePreset preset) {
+        List<String> commands = new ArrayList<>(32);
+        commands.add("-f");
+        commands.add("lavfi");
+        commands.add("-i");
+        commands.add("testsrc=size=" + width + "x" + height + ":rate=30");
+        commands.add("-t");
+        StringBuilder duration = new StringBuilder(16);
+        appendSeconds(duration, durationUs);
+        commands.add(duration.toString());
+        putVideoEncode(commands, VIDEO_PROFILE, VIDEO_LEVEL, VIDEO_BITRATE, preset);
+        commands.add("-f");
+        commands.add("null");
+        commands.add("-");
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // stills of the crop window in one run, raw RGBA frames of width x height written to pipe:1 one after another
+    // every still is its own input seeked to the middle of its slice of the range, so only the GOP before it is decoded
+    // input -ss is frame accurate when decoding, trim keeps the first frame and concat puts the stills in order
+    public List<String> buildPreviewFrames(int count, int width, int height) {
+        if(mInputPath == null || count <= 0 || mDurationUs <= 0) {
+            throw new IllegalStateException("input, range and count must be set");
+        }
+
+        List<String> commands = new ArrayList<>(DEFAULT_CAPACITY + count * 4);
+        commands.add("-nostats");
+        commands.add("-loglevel");
+        commands.add("error");
+
+        for(int i = 0; i < count; i++) {
+            long timeUs = getSourceTimeUs((2 * i + 1) * mDurationUs / (2 * count));
+            if(timeUs > 0) {
+                commands.add("-ss");
+                commands.add(formatSeconds(timeUs));
+            }
+            commands.add("-i");
+            commands.add(mInputPath);
+        }
+
+        StringBuilder filter = mBuffer;
+        filter.setLength(0);
+        for(int i = 0; i < count; i++) {
+            filter.append('[').append(i).append(":v]trim=end_frame=1, ");
+            appendCrop(filter);
+            filter.append(", scale=").append(width).append(':').append(height)
+                    .append(", setsar=1:1[f").append(i).append("]; ");
+        }
+        for(int i = 0; i < count; i++) {
+            filter.append("[f").append(i).append(']');
+        }
+        filter.append("concat=n=").append(count).append(":v=1:a=0[out]");
+
+        commands.add("-filter_complex");
+        commands.add(filter.toString());
+        commands.add("-map");
+        commands.add("[out]");
+        commands.add("-vsync");
+        commands.add("passthrough");
+        commands.add("-frames:v");
+        commands.add(String.valueOf(count));
+        commands.add("-f");
+        commands.add("rawvideo");
+        commands.add("-pix_fmt");
+        commands.add("rgba");
+        commands.add("pipe:1");
+
+        return Collections.unmodifiableList(commands);
+    }
+
+    // output width for the long side, by the ratio or, without crop, by the crop rectangle as displayed
+    public int getScaledWidth(int longSide) {
+        int width = hasCrop() ? mRatioWidth : mCropWidth;
+        int height = hasCrop() ? mRatioHeight : mCropHeight;
+
+        return width >= height ? longSide : evenRound(longSide * width / (float) height);
+    }
+
+    public int getScaledHeight(int longSide) {
+        int width = hasCrop() ? mRatioWidth : mCropWidth;
+        int height = hasCrop() ? mRatioHeight : mCropHeight;
+
+        return width >= height ? evenRound(longSide * height / (float) width) : longSide;
+    }
+
+    // crop and scale filter graph, crop rectangle is mapped to the stored frame by rotation
+    public String buildFilter() {
+        StringBuilder filter = mBuffer;
+        filter.setLength(0);
+
+        appendCrop(filter);
+        if(hasCrop()) {
+            filter.append(", ");
+            appendScale(filter, SCALE_LONG_SIDE);
+        }
+        filter.append(", setsar=1:1");
+
+        return filter.toString();
+    }
+
+    // trim every range from one decode, join them, then crop and scale the joined video once
+    // long offsetUs: source time where the input starts after its seek
+    // [0:v]split=2[s0][s1]; [0:a]asplit=2[t0][t1]; [s0]trim=start=2.000:end=5.000, setpts=PTS-STARTPTS[v0]; [t0]atrim=...[a0]; ...
+    // [v0][a0][v1][a1]concat=n=2:v=1:a=1[c][a]; [c]crop=w:h:x:y, scale=640:480, setsar=1:1[v]
+    public String buildRangeFilter(long offsetUs) {
+        StringBuilder filter = mBuffer;
+        filter.setLength(0);
+
+        int count = mRanges.size();
+        boolean audio = hasRangeAudio();
+
+        filter.append("[0:v]split=").append(count);
+        for(int i = 0; i < count; i++) {
+            filter.append("[s").append(i).append(']');
+        }
+        if(audio) {
+            filter.append("; [0:a]asplit=").append(count);
+            for(int i = 0; i < count; i++) {
+                filter.append("[t").append(i).append(']');
+            }
+        }
+
+        for(int i = 0; i < count; i++) {
+            filter.append("; [s").append(i).append("]trim=");
+            appendRange(filter, mRanges.getStartUs(i) - offsetUs, mRanges.getEndUs(i) - offsetUs);
+            filter.append(", setpts=PTS-STARTPTS[v").append(i).append(']');
+
+            if(audio) {
+                filter.append("; [t").append(i).append("]atrim=");
+                appendRange(filter, mRanges.getStartUs(i) - offsetUs, mRanges.getEndUs(i) - offsetUs);
+                filter.append(", asetpts=PTS-STARTPTS[a").append(i).append(']');
+            }
+        }
+
+        filter.append("; ");
+        for(int i = 0; i < count; i++) {
+            filter.append("[v").append(i).append(']');
+            if(audio) {
+                filter.append("[a").append(i).append(']');
+            }
+        }
+        filter.append("concat=n=").append(count).append(":v=1:a=").append(audio ? 1 : 0).append("[c]");
+        if(audio) {
+            filter.append("[a]");
+        }
+
+        filter.append("; [c]");
+        appendCrop(filter);
+        if(hasCrop()) {
+            filter.append(", ");
+            appendScale(filter, SCALE_LONG_SIDE);
+        }
+        filter.append(", setsar=1:1[v]");
+
+        return filter.toString();
+    }
+
+    private static void appendRange(StringBuilder filter, long startUs, long endUs) {
+        filter.append("start=");
+        appendSeconds(filter, startUs);
+        filter.append(":end=");
+        appendSeconds(filter, endUs);
+    }
+
+    // crop once, split, and scale every branch to its rendition
+    // [0:v]crop=w:h:x:y, split=2[s0][s1]; [s0]scale=640:480, setsar=1:1[v0]; [s1]scale=320:240, setsar=1:1[v1]
+    public String buildRenditionFilter() {
+        StringBuilder filter = mBuffer;
+        filter.setLength(0);
+
+        int count = mRenditions == null ? 0 : mRenditions.size();
+
+        filter.append("[0:v]");
+        if(hasCrop()) {
+            appendCrop(filter);
+            filter.append(", ");
+        }
+        filter.append("split=").append(count);
+        for(int i = 0; i < count; i++) {
+            filter.append("[s").append(i).append(']');
+        }
+
+        for(int i = 0; i < count; i++) {
+            filter.append("; [s").append(i).append(']');
+            appendScale(filter, mRenditions.get(i).getLongSide());
+            filter.append(", setsar=1:1[v").append(i).append(']');
+        }
+
+        return filter.toString();
+    }
+
+    private void appendCrop(StringBuilder filter) {
+        int width = mCropWidth;
+        int height = mCropHeight;
+        int x = mCropX;
+        int y = mCropY;
+
+        switch(mRotate) {
+            case 90:
+                width = mCropHeight;
+                height = mCropWidth;
+                x = mCropY;
+                y = mCropX;
+                break;
+            case 180:
+                x = mVideoWidth - mCropX - mCropWidth;
+                break;
+            case 270:
+                width = mCropHeight;
+                height = mCropWidth;
+                x = mVideoHeight - mCropY - mCropHeight;
+                y = mCropX;
+                break;
+        }
+
+        filter.append("crop=").append(width).append(':').append(height)
+                .append(':').append(x).append(':').append(y);
+    }
+
+    // scale the long side, the short side follows the ratio or, without crop, the source aspect
+    private void appendScale(StringBuilder filter, int longSide) {
+        if(hasCrop()) {
+            filter.append("scale=").append(getScaledWidth(longSide)).append(':').append(getScaledHeight(longSide));
+        } else {
+            filter.append("scale=w='if(gt(iw,ih),").append(longSide).append(",-2)':h='if(gt(iw,ih),-2,").append(longSide).append(")'");
+        }
+    }
+
+    private void checkState() {
+        if(mInputPath == null || (mOutputPath == null && !hasRenditions())) {
+            throw new IllegalStateException("input and output must be set");
+        }
+
+        if(hasRanges() && hasRenditions()) {
+            throw new IllegalStateException("a rendition ladder takes a single range");
+        }
+
+        if(mSeekUs < 0 || mDurationUs <= 0) {
+            throw new IllegalStateException("invalid range: seek " + mSeekUs + "us, duration " + mDurationUs + "us");
+        }
+    }
+
+    // -ss before -i jumps to a key frame without decoding, so only the frames after it are decoded
+    // boolean exact: land the coarse seek a little early and decode the rest with -ss after -i
+    private void putSeek(List<String> commands, long seekUs, boolean exact) {
+        long coarseUs = getCoarseSeekUs(seekUs, exact);
+
+        if(coarseUs > 0) {
+            commands.add("-ss");
+            commands.add(formatSeconds(coarseUs));
+        }
+
+        commands.add("-i");
+        commands.add(mInputPath);
+        putAudioInput(commands, coarseUs);
+
+        if(seekUs > coarseUs) {
+            commands.add("-ss");
+            commands.add(formatSeconds(seekUs - coarseUs));
+        }
+    }
+
+    // the input seek lands on a key frame at or before it, so with an index it's the key frame itself
+    private long getCoarseSeekUs(long seekUs, boolean exact) {
+        if(!exact) {
+            return seekUs;
+        }
+
+        long keyframeUs = mKeyframes != null ? mKeyframes.floor(seekUs) : -1;
+        return keyframeUs >= 0 ? keyframeUs : Math.max(0, seekUs - SEEK_PREROLL_US);
+    }
+
+    // one input and filter graph, then output options per rendition
+    // the exact seek and duration are output options, so every output gets its own
+    private void putRenditions(List<String> commands) {
+        long coarseUs = getCoarseSeekUs(mSeekUs, mExactSeek);
+        if(coarseUs > 0) {
+            commands.add("-ss");
+            commands.add(formatSeconds(coarseUs));
+        }
+
+        commands.add("-i");
+        commands.add(mInputPath);
+        putAudioInput(commands, coarseUs);
+        commands.add("-filter_complex");
+        commands.add(buildRenditionFilter());
+
+        for(int i = 0; i < mRenditions.size(); i++) {
+            Rendition rendition = mRenditions.get(i);
+
+            commands.add("-map");
+            commands.add("[v" + i + "]");
+            if(!mDropAudio) {
+                commands.add("-map");
+                commands.add(hasAudioInput() ? "1:a:0" : "0:a?");
+            }
+
+            if(mSeekUs > coarseUs) {
+                commands.add("-ss");
+                commands.add(formatSeconds(mSeekUs - coarseUs));
+            }
+            putDuration(commands, mDurationUs);
+
+            putVideoEncode(commands, rendition.getProfile(), rendition.getLevel(), rendition.getBitrate());
+            if(!mDropAudio) {
+                putAudioCodec(commands);
+            }
+            commands.add(rendition.getOutputPath());
+        }
+    }
+
+    private static void putOutput(List<String> commands, String outputPath, String outputFormat, boolean fragmented) {
+        if(fragmented) {
+            commands.add("-movflags");
+            commands.add("frag_keyframe+empty_moov");
+        }
+        if(outputFormat != null) {
+            commands.add("-f");
+            commands.add(outputFormat);
+        }
+
+        commands.add(outputPath);
+    }
+
+    // one input read from the key frame before the first range to the end of the last, and the edit list graph
+    private void putRanges(List<String> commands) {
+        long endUs = mRanges.getEndUs(mRanges.size() - 1);
+        long coarseUs = getCoarseSeekUs(mSeekUs, true);
+        if(coarseUs > 0) {
+            commands.add("-ss");
+            commands.add(formatSeconds(coarseUs));
+        }
+
+        // as an input option -t stops reading after the last range
+        putDuration(commands, endUs - coarseUs);
+        commands.add("-i");
+        commands.add(mInputPath);
+        commands.add("-filter_complex");
+        commands.add(buildRangeFilter(coarseUs));
+
+        commands.add("-map");
+        commands.add("[v]");
+        putVideoEncode(commands);
+        if(hasRangeAudio()) {
+            commands.add("-map");
+            commands.add("[a]");
+            putAudioEncode(commands);
+        } else {
+            commands.add("-an");
+        }
+    }
+
+    // source time of a time in the output
+    private long getSourceTimeUs(long outputUs) {
+        return hasRanges() ? mRanges.getSourceTimeUs(outputUs) : mSeekUs + outputUs;
+    }
+
+    private void putDuration(List<String> commands, long durationUs) {
+        commands.add("-t");
+        commands.add(formatSeconds(durationUs));
+    }
+
+    // copy the streams, audio that can't be copied is encoded
+    private void putCopy(List<String> commands) {
+        if(hasAudioInput()) {
+            putAudioMap(commands);
+        }
+
+        if(mDropAudio || canCopyAudio()) {
+            commands.add("-c");
+            commands.add("copy");
+            if(mDropAudio) {
+                commands.add("-an");
+            }
+        } else {
+            commands.add("-c:v");
+            commands.add("copy");
+            putAudioEncode(commands);
+        }
+    }
+
+    // the extracted audio is the second input, seeked like the first so the output seek cuts both the same
+    private void putAudioInput(List<String> commands, long coarseUs) {
+        if(!hasAudioInput()) {
+            return;
+        }
+
+        if(coarseUs > 0) {
+            commands.add("-ss");
+            commands.add(formatSeconds(coarseUs));
+        }
+        commands.add("-i");
+        commands.add(mAudioInputPath);
+    }
+
+    private void putAudioMap(List<String> commands) {
+        commands.add("-map");
+        commands.add("0:v:0");
+        commands.add("-map");
+        commands.add("1:a:0");
+    }
+
+    // audio of an output with one video stream
+    private void putAudio(List<String> commands) {
+        if(mDropAudio) {
+            commands.add("-an");
+            return;
+        }
+
+        if(hasAudioInput()) {
+            putAudioMap(commands);
+        }
+        putAudioCodec(commands);
+    }
+
+    private void putAudioCodec(List<String> commands) {
+        if(canCopyAudio()) {
+            commands.add("-c:a");
+            commands.add("copy");
+        } else {
+            putAudioEncode(commands);
+        }
+    }
+
+    private static void putAudioEncode(List<String> commands) {
+        commands.add("-c:a");
+        commands.add(AUDIO_CODEC);
+        commands.add("-b:a");
+        commands.add(AUDIO_BITRATE);
+    }
+
+    // an edit list filters the input's audio when it has some
+    private boolean hasRangeAudio() {
+        return mHasAudio && !mDropAudio;
+    }
+
+    private void putVideoEncode(List<String> commands) {
+        putVideoEncode(commands, VIDEO_PROFILE, VIDEO_LEVEL, VIDEO_BITRATE, mEncodePreset);
+    }
+
+    private void putVideoEncode(List<String> commands, String profile, String level, String bitrate) {
+        putVideoEncode(commands, profile, level, bitrate, mEncodePreset);
+    }
+
+    // EncodePreset preset: null for x264 defaults and the bitrate as target
+    private static void putVideoEncode(List<String> commands, String profile, String level, String bitrate, EncodePreset preset) {
+        commands.add("-vcodec");
+        commands.add("libx264");
+        commands.add("-profile:v");
+        commands.add(profile);
+        commands.add("-level");
+        commands.add(level);
+
+        if(preset != null) {
+            commands.add("-preset");
+            commands.add(preset.getPreset());
+            if(preset.getTune() != null) {
+                commands.add("-tune");
+                commands.add(preset.getTune());
+            }
+            if(preset.getThreads() > 0) {
+                commands.add("-threads");
+                commands.add(String.valueOf(preset.getThreads()));
+            }
+        }
+
+        if(preset != null && preset.getCrf() > 0) {
+            commands.add("-crf");
+            commands.add(String.valueOf(preset.getCrf()));
+            commands.add("-maxrate");
+            commands.add(bitrate);
+            commands.add("-bufsize");
+            commands.add(bitrate);
+        } else {
+            commands.add("-b:v");
+            commands.add(bitrate);
+        }
+    }
+
+    // seconds with millisecond precision, without String.format and its locale dependent decimal mark
+    public String formatSeconds(long timeUs) {
+        StringBuilder buffer = mBuffer;
+        buffer.setLength(0);
+        appendSeconds(buffer, timeUs);
+
+        return buffer.toString();
+    }
+
+    public static void appendSeconds(StringBuilder buffer, long timeUs) {
+        long millis = (timeUs + 500) / 1000;
+        int fraction = (int) (millis % 1000);
+
+        buffer.append(millis / 1000).append('.');
+        if(fraction < 100) {
+            buffer.append('0');
+        }
+        if(fraction < 10) {
+            buffer.append('0');
+        }
+        buffer.append(fraction);
+    }
+
+    private static int evenRound(float value) {
+        return Math.round(value / 2) * 2;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One crop request in a {@link CropQueue}.
+ * The command builder is owned by the job once it's queued and must not be changed from outside.
+ * Cancel, pause and nice level reach every ffmpeg process the job runs, see {@link FFmpegRunner}.
+ */
+public class CropJob {
+    public enum State {queued, running, done, failed, cancelled}
+
+    // Flags
+    public static final int FLAG_SMART_CUT = 1;		// re-encode only the edge GOPs of a trim only job
+    public static final int FLAG_SEGMENTED = 1 << 1;	// encode in resumable key frame aligned chunks
+    public static final int FLAG_EXTRACT_AUDIO = 1 << 2;	// copy audio extracted once per source, see AudioExtractor
+
+    // nice levels of the ffmpeg processes
+    public static final int PRIORITY_FOREGROUND = 0;		// the user waits for it
+    public static final int PRIORITY_BACKGROUND = 10;		// batch export, gives way to the UI and previews
+
+    // Attributes
+    private final int mId;
+    private final CropCommandBuilder mBuilder;
+    private final OutputSink mOutputSink;		// null to write the output files of the builder
+    private final int mFlags;
+    private final int mPriority;
+
+    // Working Variables
+    private volatile State mState;
+    private volatile boolean isCacheHit;	// outputs were copied from the result cache
+    private boolean isCancelled;
+    private boolean isPaused;			// paused by the user
+    private boolean isPreempted;		// paused while the queue gives way to foreground work
+    private final List<FFmpegRunner> mRunners;	// running processes of the job
+    private VideoSource mSource;			// held open until the job ends, null when the input isn't a resolved source
+
+    // Constructors
+    // int priority: PRIORITY_FOREGROUND or PRIORITY_BACKGROUND
+    public CropJob(int id, CropCommandBuilder builder, int flags, int priority) {
+        this(id, builder, null, flags, priority);
+    }
+
+    public CropJob(int id, CropCommandBuilder builder, OutputSink outputSink, int flags, int priority) {
+        mId = id;
+        mBuilder = builder;
+        mOutputSink = outputSink;
+        mFlags = flags;
+        mPriority = priority;
+        mState = State.queued;
+        mRunners = new ArrayList<>(4);
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public CropCommandBuilder getBuilder() {
+        return mBuilder;
+    }
+
+    public String getOutput() {
+        return mBuilder.getOutput();
+    }
+
+    public OutputSink getOutputSink() {
+        return mOutputSink;
+    }
+
+    // outputs are files that can be measured, cached and deleted
+    public boolean hasFileOutput() {
+        return mOutputSink == null || mOutputSink.isFile();
+    }
+
+    public int getFlags() {
+        return mFlags;
+    }
+
+    public boolean isSmartCut() {
+        return (mFlags & FLAG_SMART_CUT) != 0;
+    }
+
+    public boolean isSegmented() {
+        return (mFlags & FLAG_SEGMENTED) != 0;
+    }
+
+    public boolean isExtractAudio() {
+        return (mFlags & FLAG_EXTRACT_AUDIO) != 0;
+    }
+
+    public State getState() {
+        return mState;
+    }
+
+    void setState(State state) {
+        mState = state;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public synchronized boolean isCancelled() {
+        return isCancelled;
+    }
+
+    public synchronized boolean isPaused() {
+        return isPaused || isPreempted;
+    }
+
+    // a runner takes the job's current state and follows it until it's detached
+    synchronized void attach(FFmpegRunner runner) {
+        runner.setNice(mPriority);
+        if(isPaused()) {
+            runner.pause();
+        }
+        if(isCancelled) {
+            runner.destroy();
+        }
+
+        mRunners.add(runner);
+    }
+
+    synchronized void detach(FFmpegRunner runner) {
+        mRunners.remove(runner);
+    }
+
+    synchronized void cancel() {
+        isCancelled = true;
+        for(FFmpegRunner runner: mRunners) {
+            runner.destroy();
+        }
+    }
+
+    synchronized void setPaused(boolean paused) {
+        isPaused = paused;
+        updateRunners();
+    }
+
+    synchronized void setPreempted(boolean preempted) {
+        isPreempted = preempted;
+        updateRunners();
+    }
+
+    private void updateRunners() {
+        for(FFmpegRunner runner: mRunners) {
+            if(isPaused()) {
+                runner.pause();
+            } else {
+                runner.resume();
+            }
+        }
+    }
+
+    // a descriptor source stays open while the job may read it
+    synchronized void holdSource(VideoSource source) {
+        mSource = source;
+    }
+
+    synchronized void releaseSource() {
+        if(mSource != null) {
+            mSource.release();
+            mSource = null;
+        }
+    }
+
+    public boolean isCacheHit() {
+        return isCacheHit;
+    }
+
+    void setCacheHit(boolean cacheHit) {
+        isCacheHit = cacheHit;
+    }
+}
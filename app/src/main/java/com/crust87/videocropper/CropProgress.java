@@ -0,0 +1,63 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * Encode progress of a crop job, parsed from ffmpeg output by {@link FFmpegProgressParser}.
+ */
+public class CropProgress {
+    // Attributes
+    public float percent;		// 0 to 100 of the job range
+    public long timeUs;			// encoded position in the job range
+    public long frame;			// frames encoded by current ffmpeg run
+    public float fps;			// encoded frames per second
+    public float speed;			// encoded media seconds per wall clock second, 0 when unknown
+    public long etaMs;			// estimated time to finish, -1 when unknown
+
+    // Constructors
+    public CropProgress() {
+        etaMs = -1;
+    }
+
+    public CropProgress(CropProgress progress) {
+        set(progress);
+    }
+
+    public void set(CropProgress progress) {
+        percent = progress.percent;
+        timeUs = progress.timeUs;
+        frame = progress.frame;
+        fps = progress.fps;
+        speed = progress.speed;
+        etaMs = progress.etaMs;
+    }
+
+    public void reset() {
+        percent = 0;
+        timeUs = 0;
+        frame = 0;
+        fps = 0;
+        speed = 0;
+        etaMs = -1;
+    }
+}
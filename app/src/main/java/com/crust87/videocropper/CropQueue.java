@@ -0,0 +1,688 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs crop jobs on a bounded pool of worker threads.
+ * Every job gets its own FFmpegRunner on the installed binary, and listener callbacks are delivered on the main thread.
+ * ffmpeg output is parsed on the worker and progress is posted at a fixed rate, not for every line.
+ * A job that matches a finished one is served from the {@link ResultCache} without encoding.
+ * Every job leaves a {@link JobMetrics} record in the queue's {@link MetricsRecorder}.
+ * Jobs can be cancelled, paused and resumed, and background jobs stop while foreground work preempts them.
+ * Queued jobs start foreground first, then in order of enqueue, and a foreground job never waits for a free worker.
+ * A job writes the output files of its builder or an {@link OutputSink}, and output files of a job that doesn't finish are deleted.
+ */
+public class CropQueue {
+    public static final String FFMPEG_ASSET = "ffmpeg";
+
+    // segmented encode work directories, kept in files so they survive until the job is run again
+    public static final String SEGMENT_DIR = "segments";
+
+    // minimum interval of progress callbacks
+    public static final long PROGRESS_INTERVAL_MS = 200;
+
+    // Components
+    private Context mContext;
+    private ThreadPoolExecutor mPool;
+    private Handler mMainHandler;
+    private ResultCache mResultCache;
+    private MetricsRecorder mMetricsRecorder;
+
+    // Event Listener
+    private OnCropJobListener mOnCropJobListener;
+
+    // Attributes
+    private final String mDevice;
+    private final int mPoolSize;
+
+    // Working Variables
+    private final AtomicInteger mNextJobId;
+    private final AtomicInteger mPendingJobs;
+    private final ConcurrentHashMap<CropJob, CropWorker> mWorkers;	// jobs queued or running
+    private final AtomicInteger mPreemptions;
+    private final AtomicInteger mForegroundStarts;	// foreground jobs and preemptions begun so far
+    private int mExtraWorkers;			// workers added for foreground jobs that found the pool busy
+    private volatile boolean isPaused;
+
+    // Constructors
+    public CropQueue(Context context) throws IOException {
+        this(context, Runtime.getRuntime().availableProcessors());
+    }
+
+    // int poolSize: number of jobs encoding at the same time
+    public CropQueue(Context context, int poolSize) throws IOException {
+        mContext = context.getApplicationContext();
+
+        // fail early when ffmpeg isn't packaged
+        mContext.getAssets().open(FFMPEG_ASSET).close();
+
+        mPoolSize = poolSize;
+        mPool = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "CropQueue #" + mCount.incrementAndGet());
+            }
+        });
+        mPool.allowCoreThreadTimeOut(true);
+
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mResultCache = new ResultCache(new File(mContext.getCacheDir(), ResultCache.DISK_DIR), ResultCache.DISK_MAX_BYTES);
+        mMetricsRecorder = new MetricsRecorder();
+        mDevice = Build.MODEL + " " + Build.CPU_ABI + " " + Runtime.getRuntime().availableProcessors() + " cores";
+        mNextJobId = new AtomicInteger();
+        mPendingJobs = new AtomicInteger();
+        mWorkers = new ConcurrentHashMap<>();
+        mPreemptions = new AtomicInteger();
+        mForegroundStarts = new AtomicInteger();
+    }
+
+    public CropJob enqueue(CropCommandBuilder builder, int flags) {
+        return enqueue(builder, flags, CropJob.PRIORITY_BACKGROUND);
+    }
+
+    // queue a crop of the source, which is held open until the job ends even when the resolver lets it go
+    public CropJob enqueue(VideoSource source, CropCommandBuilder builder, int flags) {
+        return enqueue(source, builder, null, flags, CropJob.PRIORITY_BACKGROUND);
+    }
+
+    // queue a crop, the builder must have its output set and isn't changed by the caller afterwards
+    // int flags: CropJob.FLAG_SMART_CUT, CropJob.FLAG_SEGMENTED, CropJob.FLAG_EXTRACT_AUDIO
+    // int priority: CropJob.PRIORITY_FOREGROUND or CropJob.PRIORITY_BACKGROUND
+    public CropJob enqueue(CropCommandBuilder builder, int flags, int priority) {
+        return enqueue(builder, null, flags, priority);
+    }
+
+    // queue a crop writing to the sink instead of the output of the builder
+    // OutputSink outputSink: null for the builder's output, a sink takes a single output and no rendition ladder
+    public CropJob enqueue(CropCommandBuilder builder, OutputSink outputSink, int flags, int priority) {
+        return enqueue(null, builder, outputSink, flags, priority);
+    }
+
+    // VideoSource source: source of the builder's input, null when nothing has to be held open
+    public CropJob enqueue(VideoSource source, CropCommandBuilder builder, OutputSink outputSink, int flags, int priority) {
+        if(outputSink != null) {
+            if(builder.hasRenditions()) {
+                throw new IllegalArgumentException("a rendition ladder writes files");
+            }
+            outputSink.applyTo(builder);
+        }
+
+        if(source != null && !source.acquire()) {
+            throw new IllegalStateException("source is closed: " + source.getUri());
+        }
+
+        CropJob job = new CropJob(mNextJobId.incrementAndGet(), builder, outputSink, flags, priority);
+        if(source != null) {
+            job.holdSource(source);
+        }
+        job.setPaused(isPaused);
+        job.setPreempted(priority == CropJob.PRIORITY_BACKGROUND && mPreemptions.get() > 0);
+
+        CropWorker worker = new CropWorker(job);
+        mWorkers.put(job, worker);
+        mPendingJobs.incrementAndGet();
+        mPool.execute(worker);
+
+        // background jobs keep their workers while stopped or slow, the pool grows by one until this job ends
+        // a new worker takes the head of the queue, which is this or an earlier foreground job
+        if(priority == CropJob.PRIORITY_FOREGROUND && mPool.getActiveCount() >= mPool.getCorePoolSize()) {
+            worker.isExtraWorker = true;
+            addWorkers(1);
+        }
+
+        return job;
+    }
+
+    private synchronized void addWorkers(int count) {
+        mExtraWorkers += count;
+        int size = mPoolSize + mExtraWorkers;
+
+        // the core size never goes above the maximum
+        if(size > mPool.getMaximumPoolSize()) {
+            mPool.setMaximumPoolSize(size);
+            mPool.setCorePoolSize(size);
+        } else {
+            mPool.setCorePoolSize(size);
+            mPool.setMaximumPoolSize(size);
+        }
+    }
+
+    // kill the job's ffmpeg, or drop it when it hasn't started
+    public void cancel(CropJob job) {
+        job.cancel();
+
+        CropWorker worker = mWorkers.get(job);
+        if(worker != null && mPool.remove(worker)) {
+            worker.finish(false);
+        }
+    }
+
+    public void cancelAll() {
+        for(CropJob job: mWorkers.keySet()) {
+            cancel(job);
+        }
+    }
+
+    // stop or continue every job, jobs queued while paused start stopped
+    public void setPaused(boolean paused) {
+        isPaused = paused;
+        for(CropJob job: mWorkers.keySet()) {
+            job.setPaused(paused);
+        }
+    }
+
+    public boolean isPaused() {
+        return isPaused;
+    }
+
+    // background jobs stop until every begin has its end, so foreground work gets the CPU
+    public void beginPreemption() {
+        mForegroundStarts.incrementAndGet();
+        if(mPreemptions.incrementAndGet() == 1) {
+            setPreempted(true);
+        }
+    }
+
+    public void endPreemption() {
+        if(mPreemptions.decrementAndGet() == 0) {
+            setPreempted(false);
+        }
+    }
+
+    private void setPreempted(boolean preempted) {
+        for(CropJob job: mWorkers.keySet()) {
+            if(job.getPriority() == CropJob.PRIORITY_BACKGROUND) {
+                job.setPreempted(preempted);
+            }
+        }
+    }
+
+    // jobs queued or running
+    public int getPendingJobCount() {
+        return mPendingJobs.get();
+    }
+
+    // jobs encoding at the same time at most, apart from foreground jobs that found every worker busy
+    public int getPoolSize() {
+        return mPoolSize;
+    }
+
+    // no job queued or running and nothing preempting background jobs, so nothing of the app encodes
+    public boolean isIdle() {
+        return mPendingJobs.get() == 0 && mPreemptions.get() == 0;
+    }
+
+    // grows whenever a foreground job starts or preemption begins, a change tells work ran in between
+    public int getForegroundStarts() {
+        return mForegroundStarts.get();
+    }
+
+    public ResultCache getResultCache() {
+        return mResultCache;
+    }
+
+    public MetricsRecorder getMetricsRecorder() {
+        return mMetricsRecorder;
+    }
+
+    // queued jobs still run unless cancelled, no new jobs are accepted
+    public void shutdown() {
+        mPool.shutdown();
+    }
+
+    private class CropWorker implements Runnable, Comparable<CropWorker> {
+        private final CropJob mJob;
+        private final CropCommandBuilder mBuilder;
+        private final FFmpegProgressParser mParser;
+        private final JobMetrics mMetrics;	// runs of a segmented job report at once, locked on itself
+        private long mLastProgressMs;
+        private long mFramesDone;			// frames encoded by finished runs of the job
+        private long mBytesReadDone;		// bytes read by finished runs of the job
+        private boolean isExtraWorker;		// the pool grew for this job and shrinks when it ends
+
+        // created on enqueue, so the queue wait starts here
+        public CropWorker(CropJob job) {
+            mJob = job;
+            mBuilder = job.getBuilder();
+            mParser = new FFmpegProgressParser(mBuilder.getDurationUs());
+
+            mMetrics = new JobMetrics();
+            mMetrics.jobId = job.getId();
+            mMetrics.flags = job.getFlags();
+            mMetrics.device = mDevice;
+            mMetrics.enqueueMs = SystemClock.uptimeMillis();
+        }
+
+        // lower nice level first, then in order of enqueue
+        @Override
+        public int compareTo(CropWorker another) {
+            if(mJob.getPriority() != another.mJob.getPriority()) {
+                return mJob.getPriority() < another.mJob.getPriority() ? -1 : 1;
+            }
+
+            return mJob.getId() < another.mJob.getId() ? -1 : (mJob.getId() == another.mJob.getId() ? 0 : 1);
+        }
+
+        @Override
+        public void run() {
+            mMetrics.startMs = SystemClock.uptimeMillis();
+            mMetrics.parameters = mBuilder.getJobKey();
+            if(mJob.isCancelled()) {
+                finish(false);
+                return;
+            }
+
+            mJob.setState(CropJob.State.running);
+            if(mJob.getPriority() == CropJob.PRIORITY_FOREGROUND) {
+                mForegroundStarts.incrementAndGet();
+            }
+            postStart(mJob);
+
+            boolean success = false;
+            try {
+                probeAudio();
+
+                // the key is taken before a trim moves the range to key frames and before audio is extracted
+                String cacheKey = getCacheKey();
+                if(cacheKey != null && mResultCache.restore(cacheKey, mBuilder.getOutputs())) {
+                    mJob.setCacheHit(true);
+                    mMetrics.cacheHit = true;
+                    finish(true);
+                    return;
+                }
+
+                extractAudio();
+
+                mParser.start(SystemClock.uptimeMillis());
+
+                if(mBuilder.isTrimOnly()) {
+                    trim();
+                } else if(mJob.isSegmented() && !mBuilder.hasRenditions() && !mBuilder.hasRanges()) {
+                    // a rendition ladder or an edit list writes its output in one run, chunks would split its decode again
+                    encodeSegments();
+                } else {
+                    executeOutput(mBuilder.build());
+                }
+
+                if(cacheKey != null) {
+                    mResultCache.store(cacheKey, mBuilder.getOutputs());
+                }
+                success = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            finish(success);
+        }
+
+        // codec of the input's audio, decides copy or encode, which is all the cache key needs
+        private void probeAudio() {
+            if(!mBuilder.isDropAudio() && mBuilder.getAudioMime() == null) {
+                mBuilder.setAudioMime(VideoProbe.getAudioMime(mBuilder.getInput()));
+            }
+        }
+
+        // the extracted audio when the job takes it, only for a job that runs ffmpeg
+        // a failed extraction leaves the input's audio
+        private void extractAudio() {
+            if(!mBuilder.isDropAudio() && mJob.isExtractAudio() && mBuilder.getAudioMime() != null) {
+                File audio = AudioExtractor.getInstance(mContext).extract(CropQueue.this, mJob, mBuilder.getInput(), mBuilder.getAudioMime());
+                if(audio != null) {
+                    mBuilder.setAudioInput(audio.getAbsolutePath());
+                }
+            }
+        }
+
+        // null when the input can't be fingerprinted, a pipe has no size to hash
+        // a job writing to a descriptor or stream isn't cached, its output can't be read back or copied to
+        private String getCacheKey() {
+            if(!mJob.hasFileOutput()) {
+                return null;
+            }
+
+            try {
+                return ResultCache.getKey(mBuilder, mJob.getFlags());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        // a job that didn't finish leaves no partial output, chunks of a segmented job stay for the next run
+        private void finish(boolean success) {
+            if(mMetrics.startMs == 0) {
+                // cancelled before it started
+                mMetrics.startMs = SystemClock.uptimeMillis();
+            }
+
+            long bytesWritten = 0;
+            if(mJob.hasFileOutput()) {
+                for(String output: mBuilder.getOutputs()) {
+                    File file = new File(output);
+                    if(success) {
+                        bytesWritten += file.length();
+                    } else {
+                        file.delete();
+                    }
+                }
+            }
+            mMetrics.bytesWritten = bytesWritten;
+            mMetrics.finish(success, SystemClock.uptimeMillis());
+            mMetricsRecorder.record(mMetrics);
+
+            if(success) {
+                mJob.setState(CropJob.State.done);
+            } else {
+                mJob.setState(mJob.isCancelled() ? CropJob.State.cancelled : CropJob.State.failed);
+            }
+            mJob.releaseSource();
+            mWorkers.remove(mJob);
+            mPendingJobs.decrementAndGet();
+            if(isExtraWorker) {
+                addWorkers(-1);
+            }
+            postComplete(mJob, success);
+        }
+
+        // trim without re-encode
+        // the cut is snapped to key frames, or with smart cut only the GOPs on each edge are encoded
+        private void trim() throws IOException {
+            String inputPath = mBuilder.getInput();
+            long startUs = mBuilder.getSeekUs();
+            long endUs = startUs + mBuilder.getDurationUs();
+
+            long headSyncUs = getSyncTime(inputPath, startUs, true);
+            long tailSyncUs = getSyncTime(inputPath, endUs, false);
+
+            // edges are encoded to the source's format, a stream that can't be matched is cut at key frames
+            VideoFormat format = mJob.isSmartCut() && headSyncUs > startUs && tailSyncUs > headSyncUs && tailSyncUs < endUs ? VideoProbe.getVideoFormat(inputPath) : null;
+            if(format != null) {
+                smartCut(format, startUs, headSyncUs, tailSyncUs, endUs);
+            } else {
+                // start from the key frame at or before the seek, so nothing selected is lost
+                long snappedUs = getSyncTime(inputPath, startUs, false);
+                if(snappedUs < 0) {
+                    snappedUs = startUs;
+                }
+
+                mBuilder.setRange(snappedUs, endUs - snappedUs);
+                mParser.setDuration(endUs - snappedUs);
+                executeOutput(mBuilder.build());
+            }
+        }
+
+        // key frame from the job's index, or from the extractor when the source wasn't probed
+        private long getSyncTime(String inputPath, long timeUs, boolean next) {
+            KeyframeIndex keyframes = mBuilder.getKeyframes();
+            if(keyframes != null) {
+                return next ? keyframes.ceiling(timeUs) : keyframes.floor(timeUs);
+            }
+
+            return VideoProbe.getSyncTime(inputPath, timeUs, next);
+        }
+
+        // head and tail are encoded in the source's profile, level and bitrate, the middle is copied, and the three parts are joined
+        // parts are MPEG-TS so each one carries its own SPS/PPS through the concat
+        private void smartCut(VideoFormat format, long startUs, long headSyncUs, long tailSyncUs, long endUs) throws IOException {
+            File workDir = mContext.getCacheDir();
+            String prefix = "cut_" + mJob.getId();
+            File head = new File(workDir, prefix + "_head.ts");
+            File middle = new File(workDir, prefix + "_middle.ts");
+            File tail = new File(workDir, prefix + "_tail.ts");
+            File list = new File(workDir, prefix + "_list.txt");
+
+            try {
+                execute(mBuilder.buildSmartCutEdge(startUs, headSyncUs, head.getAbsolutePath(), format));
+                mParser.setOffset(headSyncUs - startUs);
+                execute(mBuilder.buildSegment(headSyncUs, tailSyncUs, middle.getAbsolutePath(), true));
+                mParser.setOffset(tailSyncUs - startUs);
+                execute(mBuilder.buildSmartCutEdge(tailSyncUs, endUs, tail.getAbsolutePath(), format));
+
+                FileWriter writer = new FileWriter(list);
+                try {
+                    writer.write("file '" + head.getAbsolutePath() + "'\n");
+                    writer.write("file '" + middle.getAbsolutePath() + "'\n");
+                    writer.write("file '" + tail.getAbsolutePath() + "'\n");
+                } finally {
+                    writer.close();
+                }
+
+                executeOutput(mBuilder.buildConcat(list.getAbsolutePath()));
+            } finally {
+                head.delete();
+                middle.delete();
+                tail.delete();
+                list.delete();
+            }
+        }
+
+        // called for every ffmpeg output line of a run, progress is posted at most once per interval
+        // frames and bytes read are summed over runs, the last sample of a run is close to its end
+        private void onProcessLine(JobRun run, String line) {
+            long now = SystemClock.uptimeMillis();
+            if(!run.parser.parseLine(line, now)) {
+                return;
+            }
+
+            long bytesRead = run.runner.getBytesRead();
+            synchronized(mMetrics) {
+                if(bytesRead > 0) {
+                    run.bytesRead = bytesRead;
+                }
+                mMetrics.onProgress(run.parser.getProgress(), mFramesDone, now);
+                mMetrics.bytesRead = Math.max(mMetrics.bytesRead, mBytesReadDone + run.bytesRead);
+            }
+
+            if(!run.isTimeline) {
+                return;
+            }
+
+            mParser.parseLine(line, now);
+            if(now - mLastProgressMs >= PROGRESS_INTERVAL_MS) {
+                mLastProgressMs = now;
+                postProgress(mJob, new CropProgress(mParser.getProgress()));
+            }
+        }
+
+        // chunks run in parallel on their own runners, progress counts finished chunks
+        private void encodeSegments() throws IOException {
+            SegmentedEncoder encoder = new SegmentedEncoder(CropQueue.this, mJob, new File(mContext.getFilesDir(), SEGMENT_DIR), getFreeSlots());
+            encoder.setOnChunkDoneListener(new SegmentedEncoder.OnChunkDoneListener() {
+                @Override
+                public void onChunkDone(long doneUs) {
+                    synchronized(mParser) {
+                        mParser.setPosition(doneUs, SystemClock.uptimeMillis());
+                        postProgress(mJob, new CropProgress(mParser.getProgress()));
+                    }
+                }
+            });
+            encoder.encode();
+        }
+
+        private void execute(List<String> commands) throws IOException {
+            execute(commands, null, true);
+        }
+
+        // run that writes the job's output, to its sink when it has one
+        private void executeOutput(List<String> commands) throws IOException {
+            execute(commands, mJob.getOutputSink(), true);
+        }
+
+        // every ffmpeg run of the job, on a runner of its own that follows the job's cancel, pause and priority
+        // boolean timeline: the run's time is the job's position, chunks and extracted audio report frames and bytes only
+        // runs of the worker come one after another, chunks call from their threads at once
+        private void execute(List<String> commands, OutputSink outputSink, boolean timeline) throws IOException {
+            final JobRun run = new JobRun(newRunner(), mBuilder.getDurationUs(), timeline);
+            run.runner.setOnReadProcessLineListener(new FFmpegRunner.OnReadProcessLineListener() {
+                @Override
+                public void onReadProcessLine(String line) {
+                    onProcessLine(run, line);
+                }
+            });
+
+            mJob.attach(run.runner);
+            try {
+                CropQueue.execute(run.runner, commands, outputSink);
+            } finally {
+                mJob.detach(run.runner);
+
+                synchronized(mMetrics) {
+                    mFramesDone += run.parser.getProgress().frame;
+                    mBytesReadDone += run.bytesRead;
+                    mMetrics.frames = Math.max(mMetrics.frames, mFramesDone);
+                    mMetrics.bytesRead = Math.max(mMetrics.bytesRead, mBytesReadDone);
+                    if(mMetrics.spawnMs < 0) {
+                        mMetrics.spawnMs = run.runner.getSpawnMs();
+                    }
+                    mMetrics.exitCode = run.runner.getExitValue();
+                }
+            }
+        }
+    }
+
+    // one ffmpeg run of a job, with frames and bytes of the run alone
+    private static class JobRun {
+        private final FFmpegRunner runner;
+        private final FFmpegProgressParser parser;
+        private final boolean isTimeline;
+        private long bytesRead;
+
+        public JobRun(FFmpegRunner runner, long durationUs, boolean isTimeline) {
+            this.runner = runner;
+            this.isTimeline = isTimeline;
+            parser = new FFmpegProgressParser(durationUs);
+            parser.start(SystemClock.uptimeMillis());
+        }
+    }
+
+    // pool slots no job is using, plus the one of the calling worker, which waits for its chunks
+    // chunks of a segmented job take only these, so encodes running at once never outnumber the pool
+    private int getFreeSlots() {
+        return Math.max(1, mPool.getCorePoolSize() - mPool.getActiveCount() + 1);
+    }
+
+    // the binary is installed by the first caller, later runners reuse it
+    FFmpegRunner newRunner() throws IOException {
+        return new FFmpegRunner(FFmpegInstaller.getInstance(mContext).install());
+    }
+
+    // run on a new runner that follows the job's cancel, pause and priority
+    // a queued job's runs go through its worker, so they count in the job's metrics
+    void execute(CropJob job, List<String> commands) throws IOException {
+        execute(job, commands, null);
+    }
+
+    // run that writes the job's output, to its sink when it has one
+    void executeOutput(CropJob job, List<String> commands) throws IOException {
+        execute(job, commands, job.getOutputSink());
+    }
+
+    private void execute(CropJob job, List<String> commands, OutputSink outputSink) throws IOException {
+        CropWorker worker = mWorkers.get(job);
+        if(worker != null) {
+            worker.execute(commands, outputSink, false);
+            return;
+        }
+
+        FFmpegRunner runner = newRunner();
+        job.attach(runner);
+        try {
+            execute(runner, commands, outputSink);
+        } finally {
+            job.detach(runner);
+        }
+    }
+
+    // a file is written by its path, a redirected descriptor as ffmpeg's stdout, other sinks read pipe:1
+    private static void execute(FFmpegRunner runner, List<String> commands, OutputSink outputSink) throws IOException {
+        if(outputSink == null || outputSink.isFile()) {
+            runner.execute(commands);
+        } else if(outputSink.getStdoutFile() != null) {
+            runner.execute(commands, outputSink.getStdoutFile());
+        } else {
+            runner.execute(commands, outputSink.getOnReadProcessOutputListener());
+        }
+    }
+
+    private void postStart(final CropJob job) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(mOnCropJobListener != null) {
+                    mOnCropJobListener.onJobStart(job);
+                }
+            }
+        });
+    }
+
+    private void postProgress(final CropJob job, final CropProgress progress) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(mOnCropJobListener != null) {
+                    mOnCropJobListener.onJobProgress(job, progress);
+                }
+            }
+        });
+    }
+
+    private void postComplete(final CropJob job, final boolean success) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(mOnCropJobListener != null) {
+                    mOnCropJobListener.onJobComplete(job, success);
+                }
+            }
+        });
+    }
+
+    // listener is called on main thread
+    public void setOnCropJobListener(OnCropJobListener onCropJobListener) {
+        mOnCropJobListener = onCropJobListener;
+    }
+
+    public interface OnCropJobListener {
+        void onJobStart(CropJob job);
+        void onJobProgress(CropJob job, CropProgress progress);
+        void onJobComplete(CropJob job, boolean success);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * Instrumentation of a drag on the anchor track.
+ * Records frame draw times and the allocations counted during touch handling and drawing,
+ * so tests can fail on jank and garbage regressions of a scripted drag.
+ */
+public class DragStats {
+    private static final int FRAME_CAPACITY = 256;
+
+    // Components
+    private final AllocationCounter mAllocationCounter;
+
+    // Working Variables
+    private final long[] mFrameNanos;	// last frame draw times, a ring
+    private int mFrameCount;
+    private long mMaxFrameNanos;
+    private long mTotalFrameNanos;
+    private int mEventCount;
+    private long mAllocations;
+    private long mStartNanos;
+    private long mStartAllocations;
+
+    // Constructors
+    // AllocationCounter allocationCounter: allocation count of current thread, null to skip allocation counting
+    public DragStats(AllocationCounter allocationCounter) {
+        mAllocationCounter = allocationCounter;
+        mFrameNanos = new long[FRAME_CAPACITY];
+    }
+
+    public void reset() {
+        mFrameCount = 0;
+        mMaxFrameNanos = 0;
+        mTotalFrameNanos = 0;
+        mEventCount = 0;
+        mAllocations = 0;
+    }
+
+    void beginEvent() {
+        begin();
+    }
+
+    void endEvent() {
+        mEventCount++;
+        end();
+    }
+
+    void beginFrame() {
+        begin();
+    }
+
+    void endFrame() {
+        long nanos = end();
+
+        mFrameNanos[mFrameCount % FRAME_CAPACITY] = nanos;
+        mFrameCount++;
+        mTotalFrameNanos += nanos;
+        if(nanos > mMaxFrameNanos) {
+            mMaxFrameNanos = nanos;
+        }
+    }
+
+    private void begin() {
+        if(mAllocationCounter != null) {
+            mStartAllocations = mAllocationCounter.getCount();
+        }
+        mStartNanos = System.nanoTime();
+    }
+
+    private long end() {
+        long nanos = System.nanoTime() - mStartNanos;
+        if(mAllocationCounter != null) {
+            mAllocations += mAllocationCounter.getCount() - mStartAllocations;
+        }
+
+        return nanos;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    // allocations made while handling touch events and drawing frames
+    public long getAllocations() {
+        return mAllocations;
+    }
+
+    public long getMaxFrameNanos() {
+        return mMaxFrameNanos;
+    }
+
+    public long getAverageFrameNanos() {
+        return mFrameCount > 0 ? mTotalFrameNanos / mFrameCount : 0;
+    }
+
+    // frames that took longer than a budget, counted over the last frames kept in the ring
+    public int countSlowFrames(long budgetNanos) {
+        int slow = 0;
+        int count = Math.min(mFrameCount, FRAME_CAPACITY);
+        for(int i = 0; i < count; i++) {
+            if(mFrameNanos[i] > budgetNanos) {
+                slow++;
+            }
+        }
+
+        return slow;
+    }
+
+    public interface AllocationCounter {
+        long getCount();
+    }
+}
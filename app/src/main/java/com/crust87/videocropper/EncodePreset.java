@@ -0,0 +1,59 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * x264 speed and quality options of an encode, chosen by {@link PresetTable}.
+ * A CRF above 0 encodes for quality under the bitrate as a cap, otherwise the bitrate is the target.
+ */
+public class EncodePreset {
+    // Attributes
+    private final String mPreset;
+    private final String mTune;		// null for none
+    private final int mThreads;		// 0 lets x264 decide
+    private final int mCrf;			// 0 for bitrate encode
+
+    // Constructors
+    public EncodePreset(String preset, String tune, int threads, int crf) {
+        mPreset = preset;
+        mTune = tune;
+        mThreads = threads;
+        mCrf = crf;
+    }
+
+    public String getPreset() {
+        return mPreset;
+    }
+
+    public String getTune() {
+        return mTune;
+    }
+
+    public int getThreads() {
+        return mThreads;
+    }
+
+    public int getCrf() {
+        return mCrf;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Installs the ffmpeg binary from assets once per app version and ABI.
+ * The SHA-1 of the copy is stored next to it, and a binary that doesn't match is installed again.
+ * An installed binary is verified once per process, so later jobs only get its path.
+ */
+public class FFmpegInstaller {
+    public static final String INSTALL_DIR = "ffmpeg";
+    private static final String HASH_SUFFIX = ".sha1";
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static FFmpegInstaller sInstance;
+
+    // Components
+    private Context mContext;
+    private ExecutorService mExecutor;
+    private Handler mMainHandler;
+
+    // Attributes
+    private File mInstallDir;
+    private File mBinary;		// verified binary of this process, null until installed
+
+    public static synchronized FFmpegInstaller getInstance(Context context) {
+        if(sInstance == null) {
+            sInstance = new FFmpegInstaller(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    // Constructors
+    private FFmpegInstaller(Context context) {
+        mContext = context;
+        mInstallDir = new File(context.getFilesDir(), INSTALL_DIR);
+        mExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    // install on the installer thread, listener is called on main thread
+    // OnInstallListener onInstallListener: may be null to only warm up
+    public void installAsync(final OnInstallListener onInstallListener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File binary = null;
+                try {
+                    binary = install();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+
+                if(onInstallListener != null) {
+                    final File result = binary;
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onInstallListener.onInstall(result);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    // installed binary, blocks while it's being installed or verified
+    // don't call on main thread
+    public synchronized File install() throws IOException {
+        if(mBinary != null && mBinary.canExecute()) {
+            return mBinary;
+        }
+
+        File binary = new File(mInstallDir, getBinaryName());
+        File hashFile = new File(mInstallDir, binary.getName() + HASH_SUFFIX);
+
+        String storedHash = readHash(hashFile);
+        if(storedHash != null && binary.canExecute() && storedHash.equals(hash(binary))) {
+            mBinary = binary;
+            return binary;
+        }
+
+        if(!mInstallDir.isDirectory() && !mInstallDir.mkdirs()) {
+            throw new IOException("can't create " + mInstallDir);
+        }
+
+        // copied to a part file and renamed, so a killed install is never taken for a binary
+        File part = new File(mInstallDir, binary.getName() + PART_SUFFIX);
+        try {
+            String hash = copyAsset(part);
+            if(!part.setExecutable(true, true)) {
+                throw new IOException("can't make " + part + " executable");
+            }
+
+            hashFile.delete();
+            if(!part.renameTo(binary)) {
+                throw new IOException("can't rename " + part);
+            }
+            writeHash(hashFile, hash);
+        } finally {
+            part.delete();
+        }
+
+        deleteStale(binary, hashFile);
+        mBinary = binary;
+
+        return binary;
+    }
+
+    // ffmpeg_<version code>_<abi>
+    String getBinaryName() {
+        int versionCode = 0;
+        try {
+            versionCode = mContext.getPackageManager().getPackageInfo(mContext.getPackageName(), 0).versionCode;
+        } catch (PackageManager.NameNotFoundException e) {
+            e.printStackTrace();
+        }
+
+        return INSTALL_DIR + "_" + versionCode + "_" + Build.CPU_ABI;
+    }
+
+    private String copyAsset(File target) throws IOException {
+        MessageDigest digest = CacheFiles.newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        InputStream in = mContext.getAssets().open(CropQueue.FFMPEG_ASSET);
+        try {
+            OutputStream out = new FileOutputStream(target);
+            try {
+                int read;
+                while((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+
+        return CacheFiles.toHex(digest.digest());
+    }
+
+    // binaries of other versions and ABIs
+    private void deleteStale(File binary, File hashFile) {
+        File[] files = mInstallDir.listFiles();
+        if(files == null) {
+            return;
+        }
+
+        for(File file: files) {
+            if(!file.equals(binary) && !file.equals(hashFile)) {
+                file.delete();
+            }
+        }
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest = CacheFiles.newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        InputStream in = new FileInputStream(file);
+        try {
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+
+        return CacheFiles.toHex(digest.digest());
+    }
+
+    private static String readHash(File hashFile) {
+        if(!hashFile.isFile()) {
+            return null;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(hashFile));
+            try {
+                return reader.readLine();
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeHash(File hashFile, String hash) throws IOException {
+        FileWriter writer = new FileWriter(hashFile);
+        try {
+            writer.write(hash);
+        } finally {
+            writer.close();
+        }
+    }
+
+    // binary is null when the install failed
+    public interface OnInstallListener {
+        void onInstall(File binary);
+    }
+}
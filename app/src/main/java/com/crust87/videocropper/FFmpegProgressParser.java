@@ -0,0 +1,212 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * Parses ffmpeg progress without regular expressions or substrings.
+ * Reads the stats line on stderr, "frame=  240 fps= 60 q=28.0 size= 512kB time=00:00:08.00 bitrate= 524.3kbits/s speed=1.99x",
+ * and the key=value lines of -progress output, "out_time_us=8000000".
+ */
+public class FFmpegProgressParser {
+    private static final String KEY_FRAME = "frame=";
+    private static final String KEY_FPS = "fps=";
+    private static final String KEY_TIME = "time=";
+    private static final String KEY_OUT_TIME_US = "out_time_us=";
+    private static final String KEY_OUT_TIME_MS = "out_time_ms=";	// it's microseconds too
+    private static final String KEY_SPEED = "speed=";
+
+    // Attributes
+    private long mDurationUs;
+    private long mOffsetUs;
+    private long mStartMs;
+
+    // Working Variables
+    private final CropProgress mProgress;
+    private int mParseEnd;		// end index of last parsed value
+
+    // Constructors
+    // long durationUs: length of the whole job, percent and eta are relative to it
+    public FFmpegProgressParser(long durationUs) {
+        mDurationUs = durationUs;
+        mProgress = new CropProgress();
+    }
+
+    // start of the job, for eta when ffmpeg doesn't print speed
+    public void start(long nowMs) {
+        mStartMs = nowMs;
+        mOffsetUs = 0;
+        mProgress.reset();
+    }
+
+    public void setDuration(long durationUs) {
+        mDurationUs = durationUs;
+    }
+
+    // position of next ffmpeg run in the job, when a job runs several commands
+    public void setOffset(long offsetUs) {
+        mOffsetUs = offsetUs;
+    }
+
+    public CropProgress getProgress() {
+        return mProgress;
+    }
+
+    // parse one output line, return true if it had a time position
+    public boolean parseLine(String line, long nowMs) {
+        if(line == null) {
+            return false;
+        }
+
+        // -progress output has one key per line, so every key is optional
+        int index = findKey(line, KEY_FRAME);
+        if(index >= 0) {
+            mProgress.frame = (long) parseNumber(line, index);
+        }
+
+        index = findKey(line, KEY_FPS);
+        if(index >= 0) {
+            mProgress.fps = (float) parseNumber(line, index);
+        }
+
+        index = findKey(line, KEY_SPEED);
+        if(index >= 0) {
+            double speed = parseNumber(line, index);
+            mProgress.speed = speed > 0 ? (float) speed : 0;
+        }
+
+        long timeUs = -1;
+
+        index = findKey(line, KEY_TIME);
+        if(index >= 0) {
+            timeUs = parseClock(line, index);
+        } else if((index = findKey(line, KEY_OUT_TIME_US)) >= 0 || (index = findKey(line, KEY_OUT_TIME_MS)) >= 0) {
+            timeUs = (long) parseNumber(line, index);
+        }
+
+        if(timeUs < 0) {
+            return false;
+        }
+
+        setPosition(mOffsetUs + timeUs, nowMs);
+
+        return true;
+    }
+
+    // set position in the job, for progress that doesn't come from a single ffmpeg output
+    public void setPosition(long timeUs, long nowMs) {
+        if(timeUs > mDurationUs) {
+            timeUs = mDurationUs;
+        }
+
+        CropProgress progress = mProgress;
+        progress.timeUs = timeUs;
+        progress.percent = mDurationUs > 0 ? timeUs * 100f / mDurationUs : 0;
+
+        long remainingUs = mDurationUs - timeUs;
+        long elapsedMs = nowMs - mStartMs;
+        if(progress.speed > 0) {
+            progress.etaMs = (long) (remainingUs / 1000 / progress.speed);
+        } else if(timeUs > 0 && elapsedMs > 0) {
+            progress.etaMs = remainingUs / 1000 * elapsedMs / (timeUs / 1000 + 1);
+        } else {
+            progress.etaMs = -1;
+        }
+    }
+
+    // index of value for key at start of line or after a space, -1 if not found
+    private static int findKey(String line, String key) {
+        int index = line.indexOf(key);
+        while(index > 0 && line.charAt(index - 1) != ' ') {
+            index = line.indexOf(key, index + 1);
+        }
+
+        return index < 0 ? -1 : index + key.length();
+    }
+
+    // [-]hh:mm:ss.xx, -1 for negative or malformed time
+    private long parseClock(String line, int index) {
+        index = skipSpaces(line, index);
+        if(index >= line.length() || line.charAt(index) == '-') {
+            return -1;
+        }
+
+        long hours = (long) parseNumber(line, index);
+        if(!isSeparator(line, mParseEnd)) {
+            return -1;
+        }
+
+        long minutes = (long) parseNumber(line, mParseEnd + 1);
+        if(!isSeparator(line, mParseEnd)) {
+            return -1;
+        }
+
+        double seconds = parseNumber(line, mParseEnd + 1);
+
+        return (hours * 3600 + minutes * 60) * 1000000 + (long) (seconds * 1000000);
+    }
+
+    private static boolean isSeparator(String line, int index) {
+        return index < line.length() && line.charAt(index) == ':';
+    }
+
+    // unsigned decimal number, 0 if there is none, sets mParseEnd
+    private double parseNumber(String line, int index) {
+        index = skipSpaces(line, index);
+
+        int length = line.length();
+        long integer = 0;
+        long fraction = 0;
+        long divider = 1;
+        boolean point = false;
+
+        for(; index < length; index++) {
+            char c = line.charAt(index);
+            if(c >= '0' && c <= '9') {
+                if(point) {
+                    if(divider < 1000000) {
+                        fraction = fraction * 10 + (c - '0');
+                        divider *= 10;
+                    }
+                } else {
+                    integer = integer * 10 + (c - '0');
+                }
+            } else if(c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+
+        mParseEnd = index;
+
+        return integer + (double) fraction / divider;
+    }
+
+    private static int skipSpaces(String line, int index) {
+        while(index < line.length() && line.charAt(index) == ' ') {
+            index++;
+        }
+
+        return index;
+    }
+}
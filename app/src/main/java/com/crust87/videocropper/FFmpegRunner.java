@@ -0,0 +1,436 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the installed ffmpeg binary with a command list.
+ * Output lines are passed to the listener on the calling thread, and a failed run throws.
+ * A run writing binary output to pipe:1 hands stdout to its own listener instead,
+ * and one writing /proc/self/fd/1 gets a file as its stdout, see {@link OutputSink}.
+ * The process can be killed, stopped and continued with signals, and runs at a nice level.
+ * Those can be set before a run and are applied as soon as the process starts.
+ * An input on a descriptor path of {@link VideoSource} is opened here and given to ffmpeg as its stdin,
+ * a release build isn't dumpable, so ffmpeg can't open the app's /proc entries itself.
+ * From Android 8.0 stdin is the file itself and stays seekable, before that the file is streamed into a pipe,
+ * which can't seek, so a source with its index at the end or read more than once can't be used there.
+ */
+public class FFmpegRunner {
+    // Linux signal numbers, Android only names SIGKILL
+    private static final int SIGNAL_CONT = 18;
+    private static final int SIGNAL_STOP = 19;
+
+    // ProcessBuilder redirects came with Android 8.0, after the SDK this builds against
+    private static final int SDK_REDIRECT = 26;
+    private static final String STDIN_PATH = "/proc/self/fd/0";
+    private static final String STDIN_PIPE = "pipe:0";
+    private static final int STDIN_BUFFER_SIZE = 64 * 1024;
+
+    // Attributes
+    private final File mBinary;
+    private int mNice;				// nice level of the process, 0 is normal, 19 is lowest
+
+    // Working Variables
+    private Process mProcess;
+    private volatile int mPid;		// -1 when not running or the platform doesn't expose it
+    private boolean isPaused;
+    private volatile boolean isCancelled;
+    private long mSpawnMs;			// time ProcessBuilder.start took in last run
+    private int mExitValue;			// exit code of last run, -1 while running or when killed before exit
+
+    // Event Listener
+    private OnReadProcessLineListener mOnReadProcessLineListener;
+
+    // Constructors
+    public FFmpegRunner(File binary) {
+        mBinary = binary;
+    }
+
+    // run ffmpeg and block until it exits
+    // List<String> commands: arguments after the binary, as built by CropCommandBuilder
+    public void execute(List<String> commands) throws IOException {
+        Process process = start(commands, true);
+
+        try {
+            readLines(process.getInputStream());
+            waitFor(process);
+        } finally {
+            stop(process);
+        }
+    }
+
+    // run ffmpeg writing to pipe:1 and block until it exits
+    // stdout is handed to the listener on the calling thread, stderr lines go to the line listener from another thread
+    public void execute(List<String> commands, OnReadProcessOutputListener onReadProcessOutputListener) throws IOException {
+        final Process process = start(commands, false);
+
+        // a full stderr pipe would block ffmpeg before it writes the output
+        Thread errorReader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    readLines(process.getErrorStream());
+                } catch (IOException e) {
+                    // closed by stop
+                }
+            }
+        }, "ffmpeg-stderr");
+        errorReader.start();
+
+        try {
+            InputStream output = process.getInputStream();
+            try {
+                onReadProcessOutputListener.onReadProcessOutput(output);
+            } finally {
+                output.close();
+            }
+
+            // stderr ends when the process exits, the last lines carry the final progress
+            errorReader.join();
+            waitFor(process);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } finally {
+            stop(process);
+        }
+    }
+
+    // run ffmpeg with the file opened as its stdout and block until it exits
+    // the commands write /proc/self/fd/1, which ffmpeg opens again and can seek, stderr lines go to the line listener
+    public void execute(List<String> commands, File stdoutFile) throws IOException {
+        Process process = start(commands, false, stdoutFile);
+
+        try {
+            readLines(process.getErrorStream());
+            waitFor(process);
+        } finally {
+            stop(process);
+        }
+    }
+
+    // stdin and stdout can be opened on files, the descriptors ffmpeg can't reach by path
+    public static boolean canRedirect() {
+        return Build.VERSION.SDK_INT >= SDK_REDIRECT;
+    }
+
+    private Process start(List<String> commands, boolean redirectErrorStream) throws IOException {
+        return start(commands, redirectErrorStream, null);
+    }
+
+    // File stdoutFile: file opened as stdout, null for a pipe to this process
+    private Process start(List<String> commands, boolean redirectErrorStream, File stdoutFile) throws IOException {
+        List<String> processCommands = new ArrayList<>(commands.size() + 2);
+        processCommands.add(mBinary.getAbsolutePath());
+        processCommands.addAll(commands);
+
+        ProcessBuilder processBuilder = new ProcessBuilder(processCommands).redirectErrorStream(redirectErrorStream);
+        String streamedInput = redirectDescriptorInput(processBuilder, processCommands);
+        if(stdoutFile != null && !redirect(processBuilder, "redirectOutput", "to", stdoutFile)) {
+            throw new IOException("stdout can't be redirected");
+        }
+
+        synchronized(this) {
+            if(isCancelled) {
+                throw new IOException("cancelled");
+            }
+
+            mExitValue = -1;
+            long spawnStartMs = SystemClock.uptimeMillis();
+            Process process = processBuilder.start();
+            mSpawnMs = SystemClock.uptimeMillis() - spawnStartMs;
+            mProcess = process;
+            mPid = getPid(process);
+
+            if(streamedInput != null) {
+                writeInput(process, streamedInput);
+            }
+
+            // threads ffmpeg starts later take the nice level of its main thread
+            applyNice();
+            if(isPaused) {
+                sendSignal(SIGNAL_STOP);
+            }
+
+            return process;
+        }
+    }
+
+    // point the descriptor input of the commands at ffmpeg's stdin
+    // returns the path to stream into stdin when the file can't be its stdin, null otherwise
+    private static String redirectDescriptorInput(ProcessBuilder processBuilder, List<String> processCommands) throws IOException {
+        String descriptorPath = null;
+        int count = 0;
+        for(int i = 1; i < processCommands.size(); i++) {
+            String argument = processCommands.get(i);
+            if(processCommands.get(i - 1).equals("-i") && VideoSource.isDescriptorPath(argument)) {
+                if(descriptorPath != null && !descriptorPath.equals(argument)) {
+                    throw new IOException("more than one descriptor input");
+                }
+                descriptorPath = argument;
+                count++;
+            }
+        }
+
+        if(descriptorPath == null) {
+            return null;
+        }
+
+        String stdinPath;
+        boolean isStreamed = false;
+        if(redirect(processBuilder, "redirectInput", "from", new File(descriptorPath))) {
+            // ffmpeg reads keys from stdin unless told not to
+            processCommands.add(1, "-nostdin");
+            stdinPath = STDIN_PATH;
+        } else if(count == 1) {
+            stdinPath = STDIN_PIPE;
+            isStreamed = true;
+        } else {
+            throw new IOException("a streamed descriptor input can be read once");
+        }
+
+        for(int i = 1; i < processCommands.size(); i++) {
+            if(processCommands.get(i).equals(descriptorPath)) {
+                processCommands.set(i, stdinPath);
+            }
+        }
+
+        return isStreamed ? descriptorPath : null;
+    }
+
+    // the file is opened by this process, which may open its own /proc entries, and inherited by ffmpeg
+    // String method, factory: redirectInput with Redirect.from, or redirectOutput with Redirect.to
+    private static boolean redirect(ProcessBuilder processBuilder, String method, String factory, File file) {
+        if(!canRedirect()) {
+            return false;
+        }
+
+        try {
+            Class<?> redirect = Class.forName("java.lang.ProcessBuilder$Redirect");
+            Object target = redirect.getMethod(factory, File.class).invoke(null, file);
+            ProcessBuilder.class.getMethod(method, redirect).invoke(processBuilder, target);
+            return true;
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // copy the file to stdin of the process on its own thread, a new descriptor on the file so its offset is ffmpeg's alone
+    private static void writeInput(final Process process, final String path) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                OutputStream output = process.getOutputStream();
+                try {
+                    FileInputStream input = new FileInputStream(path);
+                    try {
+                        byte[] buffer = new byte[STDIN_BUFFER_SIZE];
+                        int read;
+                        while((read = input.read(buffer)) != -1) {
+                            output.write(buffer, 0, read);
+                        }
+                    } finally {
+                        input.close();
+                    }
+                } catch (IOException e) {
+                    // ffmpeg has read what it needs, or was stopped
+                } finally {
+                    try {
+                        output.close();
+                    } catch (IOException e) {
+                        // closed by stop
+                    }
+                }
+            }
+        }, "ffmpeg-stdin").start();
+    }
+
+    private void readLines(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(mOnReadProcessLineListener != null) {
+                    mOnReadProcessLineListener.onReadProcessLine(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void waitFor(Process process) throws IOException {
+        try {
+            int exitValue = process.waitFor();
+            mExitValue = exitValue;
+            if(isCancelled) {
+                throw new IOException("cancelled");
+            }
+            if(exitValue != 0) {
+                throw new IOException("ffmpeg exited with " + exitValue);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+    }
+
+    private void stop(Process process) {
+        process.destroy();
+        synchronized(this) {
+            mProcess = null;
+            mPid = -1;
+        }
+    }
+
+    public long getSpawnMs() {
+        return mSpawnMs;
+    }
+
+    public int getExitValue() {
+        return mExitValue;
+    }
+
+    // bytes read so far by the running process from /proc/<pid>/io, -1 when it can't be read
+    public long getBytesRead() {
+        int pid = mPid;
+        if(pid <= 0) {
+            return -1;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader("/proc/" + pid + "/io"));
+            try {
+                String line;
+                while((line = reader.readLine()) != null) {
+                    if(line.startsWith("rchar:")) {
+                        return Long.parseLong(line.substring(6).trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+
+        return -1;
+    }
+
+    // the process classes of Android and the JDK both keep the pid in a private field
+    private static int getPid(Process process) {
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getInt(process);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return -1;
+        }
+    }
+
+    // kill the running process, execute then throws, and so does every later run
+    public synchronized void destroy() {
+        isCancelled = true;
+        if(mProcess != null) {
+            mProcess.destroy();
+            // a stopped process handles the kill only once it's continued
+            sendSignal(SIGNAL_CONT);
+        }
+    }
+
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    // stop the process with SIGSTOP, it keeps its memory but uses no CPU
+    public synchronized void pause() {
+        if(!isPaused) {
+            isPaused = true;
+            sendSignal(SIGNAL_STOP);
+        }
+    }
+
+    public synchronized void resume() {
+        if(isPaused) {
+            isPaused = false;
+            sendSignal(SIGNAL_CONT);
+        }
+    }
+
+    public synchronized boolean isPaused() {
+        return isPaused;
+    }
+
+    // int nice: 0 for normal priority up to 19 for the lowest, see android.os.Process.THREAD_PRIORITY_BACKGROUND
+    public synchronized void setNice(int nice) {
+        mNice = nice;
+        applyNice();
+    }
+
+    private void applyNice() {
+        if(mProcess == null || mPid <= 0) {
+            return;
+        }
+
+        try {
+            android.os.Process.setThreadPriority(mPid, mNice);
+        } catch (IllegalArgumentException | SecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void sendSignal(int signal) {
+        if(mProcess != null && mPid > 0) {
+            android.os.Process.sendSignal(mPid, signal);
+        }
+    }
+
+    public void setOnReadProcessLineListener(OnReadProcessLineListener onReadProcessLineListener) {
+        mOnReadProcessLineListener = onReadProcessLineListener;
+    }
+
+    public interface OnReadProcessLineListener {
+        void onReadProcessLine(String line);
+    }
+
+    public interface OnReadProcessOutputListener {
+        // read the output to its end, the stream is closed after and ffmpeg fails on a later write
+        void onReadProcessOutput(InputStream output) throws IOException;
+    }
+}
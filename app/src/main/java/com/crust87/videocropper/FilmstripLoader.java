@@ -0,0 +1,339 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+
+/**
+ * Loads the thumbnail tiles of a track through {@link ThumbnailCache}.
+ * Tiles come from the levels of a {@link TilePyramid}, and only the window the track asks for is loaded:
+ * the visible tiles of one level first, then the adjacent ones on both sides.
+ * Cached tiles are ready at once, the rest are decoded on a loader thread and reported one by one.
+ * A request from drawing only stores the window and wakes the thread, keys and decodes are made there,
+ * so the draw path doesn't allocate however often the visible tiles change.
+ */
+public class FilmstripLoader {
+    // finer tiles decode the exact frame, coarser ones the nearest key frame, which is much faster
+    private static final long CLOSEST_FRAME_INTERVAL_US = 2000000;
+
+    // Components
+    private final ThumbnailCache mCache;
+    private final Handler mMainHandler;
+    private final Object mLock;
+    private MediaMetadataRetriever mRetriever;	// used on the loader thread only, kept open between windows
+    private String mRetrieverPath;
+
+    // Event Listener
+    private OnFrameLoadedListener mOnFrameLoadedListener;
+
+    // Attributes, guarded by mLock
+    private String mPath;
+    private long mModified;
+    private TilePyramid mPyramid;
+    private int mFrameWidth;
+    private int mFrameHeight;
+
+    // Working Variables, requested window guarded by mLock
+    private int mLevel;				// level of the requested window, -1 when nothing is requested
+    private int mVisibleFirst;
+    private int mVisibleLast;
+    private int mGeneration;		// changes with every request, a load of an older one stops
+    private boolean isReleased;
+    private volatile Window mWindow;	// keys of the window being loaded, read while drawing
+
+    // Constructors
+    public FilmstripLoader(ThumbnailCache cache) {
+        mCache = cache;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mLock = new Object();
+        mLevel = -1;
+
+        new Thread(new LoadTask(), "filmstrip").start();
+    }
+
+    // set the video and tile levels, nothing is loaded until a window is requested, previous load is cancelled
+    public void load(String path, TilePyramid pyramid, int frameWidth, int frameHeight) {
+        long modified = new File(path).lastModified();
+
+        synchronized(mLock) {
+            mPath = path;
+            mModified = modified;
+            mPyramid = pyramid;
+            mFrameWidth = frameWidth;
+            mFrameHeight = frameHeight;
+            mWindow = null;
+            cancelLocked();
+        }
+    }
+
+    // load tiles first to last of the level and as many again around them, called on every draw
+    // the running load is replaced only when the visible tiles change, nothing is allocated here
+    public void request(int level, int first, int last) {
+        synchronized(mLock) {
+            if(mPath == null || (level == mLevel && first == mVisibleFirst && last == mVisibleLast)) {
+                return;
+            }
+
+            mLevel = level;
+            mVisibleFirst = first;
+            mVisibleLast = last;
+            mGeneration++;
+            mLock.notify();
+        }
+    }
+
+    public void cancel() {
+        synchronized(mLock) {
+            cancelLocked();
+        }
+    }
+
+    private void cancelLocked() {
+        mLevel = -1;
+        mGeneration++;
+    }
+
+    // stop the loader thread, it releases the retriever on its way out
+    public void release() {
+        synchronized(mLock) {
+            isReleased = true;
+            cancelLocked();
+            mLock.notify();
+        }
+    }
+
+    // tile from memory, or null when it isn't loaded yet or is out of the window being loaded
+    // the level above the window can be asked for too, its tiles are loaded by earlier windows
+    public Bitmap getTile(int level, int index) {
+        Window window = mWindow;
+        if(window == null) {
+            return null;
+        }
+
+        String key = window.getKey(level, index);
+        return key != null ? mCache.getFromMemory(key) : null;
+    }
+
+    // levels share frame times, the option is part of the tile key so they don't share frames decoded differently
+    private static int getOption(long intervalUs) {
+        return intervalUs < CLOSEST_FRAME_INTERVAL_US ? MediaMetadataRetriever.OPTION_CLOSEST : MediaMetadataRetriever.OPTION_CLOSEST_SYNC;
+    }
+
+    private MediaMetadataRetriever openRetriever(String path) {
+        if(mRetriever == null || !path.equals(mRetrieverPath)) {
+            closeRetriever();
+            mRetriever = new MediaMetadataRetriever();
+            mRetrieverPath = path;
+            mRetriever.setDataSource(path);
+        }
+
+        return mRetriever;
+    }
+
+    private void closeRetriever() {
+        if(mRetriever != null) {
+            mRetriever.release();
+            mRetriever = null;
+            mRetrieverPath = null;
+        }
+    }
+
+    // requested tiles with the adjacent ones and their cache keys, made on the loader thread
+    private static class Window {
+        private final String mPath;
+        private final long mIntervalUs;
+        private final int mLevel;
+        private final int mFirst;
+        private final int mLast;
+        private final int mVisibleFirst;
+        private final int mVisibleLast;
+        private final String[] mKeys;
+        private final String[] mParentKeys;		// keys of the level above, drawn while a tile is loading, null at the top
+        private final int mFrameWidth;
+        private final int mFrameHeight;
+
+        public Window(String path, long modified, TilePyramid pyramid, int level, int visibleFirst, int visibleLast, int frameWidth, int frameHeight) {
+            int adjacent = (visibleLast - visibleFirst) / 2 + 1;
+
+            mPath = path;
+            mIntervalUs = pyramid.getIntervalUs(level);
+            mLevel = level;
+            mFirst = Math.max(0, visibleFirst - adjacent);
+            mLast = Math.min(pyramid.getTileCount(level) - 1, visibleLast + adjacent);
+            mVisibleFirst = visibleFirst;
+            mVisibleLast = visibleLast;
+            mFrameWidth = frameWidth;
+            mFrameHeight = frameHeight;
+            mKeys = makeKeys(path, modified, pyramid, level, mFirst, mLast, frameWidth, frameHeight);
+            mParentKeys = level + 1 < pyramid.getLevelCount() ? makeKeys(path, modified, pyramid, level + 1, mFirst / 2, mLast / 2, frameWidth, frameHeight) : null;
+        }
+
+        private static String[] makeKeys(String path, long modified, TilePyramid pyramid, int level, int first, int last, int frameWidth, int frameHeight) {
+            String[] keys = new String[last - first + 1];
+            int option = getOption(pyramid.getIntervalUs(level));
+            for(int i = first; i <= last; i++) {
+                keys[i - first] = ThumbnailCache.getKey(path, modified, pyramid.getTimeUs(level, i), option, frameWidth, frameHeight);
+            }
+
+            return keys;
+        }
+
+        // null out of the window
+        public String getKey(int level, int index) {
+            if(level == mLevel && index >= mFirst && index <= mLast) {
+                return mKeys[index - mFirst];
+            }
+
+            if(level == mLevel + 1 && mParentKeys != null && index >= mFirst / 2 && index <= mLast / 2) {
+                return mParentKeys[index - mFirst / 2];
+            }
+
+            return null;
+        }
+    }
+
+    // one thread for the life of the loader, waits for a request and loads its window until a newer one comes
+    private class LoadTask implements Runnable {
+        @Override
+        public void run() {
+            int loadedGeneration = -1;
+
+            try {
+                while(true) {
+                    Window window;
+                    int generation;
+                    synchronized(mLock) {
+                        while(!isReleased && (mLevel < 0 || mGeneration == loadedGeneration)) {
+                            mLock.wait();
+                        }
+                        if(isReleased) {
+                            return;
+                        }
+
+                        generation = mGeneration;
+                        window = new Window(mPath, mModified, mPyramid, mLevel, mVisibleFirst, mVisibleLast, mFrameWidth, mFrameHeight);
+                        mWindow = window;
+                    }
+
+                    load(window, generation);
+                    loadedGeneration = generation;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeRetriever();
+            }
+        }
+
+        private void load(Window window, int generation) {
+            try {
+                // visible tiles, then outwards on both sides
+                for(int i = window.mVisibleFirst; i <= window.mVisibleLast; i++) {
+                    if(!loadTile(window, generation, i)) {
+                        return;
+                    }
+                }
+
+                for(int distance = 1; window.mVisibleLast + distance <= window.mLast || window.mVisibleFirst - distance >= window.mFirst; distance++) {
+                    if(!loadTile(window, generation, window.mVisibleLast + distance) || !loadTile(window, generation, window.mVisibleFirst - distance)) {
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                // retriever throws for files it can't open
+                e.printStackTrace();
+                closeRetriever();
+            }
+        }
+
+        // false when a newer request replaced the window
+        private boolean loadTile(Window window, int generation, int index) {
+            synchronized(mLock) {
+                if(generation != mGeneration || isReleased) {
+                    return false;
+                }
+            }
+
+            if(index < window.mFirst || index > window.mLast) {
+                return true;
+            }
+
+            String key = window.mKeys[index - window.mFirst];
+            if(mCache.get(key) == null) {
+                Bitmap frame = openRetriever(window.mPath).getFrameAtTime(index * window.mIntervalUs, getOption(window.mIntervalUs));
+                if(frame == null) {
+                    return true;
+                }
+
+                mCache.put(key, centerCrop(frame, window.mFrameWidth, window.mFrameHeight));
+            }
+
+            postFrameLoaded(window.mLevel, index);
+            return true;
+        }
+    }
+
+    // scale to cover the frame size and cut the overflow, source bitmap is recycled
+    static Bitmap centerCrop(Bitmap source, int width, int height) {
+        float scale = Math.max(width / (float) source.getWidth(), height / (float) source.getHeight());
+        int scaledWidth = Math.max(width, Math.round(source.getWidth() * scale));
+        int scaledHeight = Math.max(height, Math.round(source.getHeight() * scale));
+
+        Bitmap scaled = Bitmap.createScaledBitmap(source, scaledWidth, scaledHeight, true);
+        if(scaled != source) {
+            source.recycle();
+        }
+
+        Bitmap cropped = Bitmap.createBitmap(scaled, (scaledWidth - width) / 2, (scaledHeight - height) / 2, width, height);
+        if(cropped != scaled) {
+            scaled.recycle();
+        }
+
+        return cropped;
+    }
+
+    private void postFrameLoaded(final int level, final int index) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(mOnFrameLoadedListener != null) {
+                    mOnFrameLoadedListener.onFrameLoaded(level, index);
+                }
+            }
+        });
+    }
+
+    // listener is called on main thread
+    public void setOnFrameLoadedListener(OnFrameLoadedListener onFrameLoadedListener) {
+        mOnFrameLoadedListener = onFrameLoadedListener;
+    }
+
+    public interface OnFrameLoadedListener {
+        void onFrameLoaded(int level, int index);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.crust87.videotrackview.VideoTrackOverlay;
+import com.crust87.videotrackview.VideoTrackView;
+
+/**
+ * Track of a video that decodes nothing itself, its overlay draws the whole strip.
+ * VideoTrackView decodes its own frames on every setVideo and can't take frames from elsewhere,
+ * here {@link AnchorOverlay} paints tiles from {@link ThumbnailCache}, so a clip opened again isn't decoded at all.
+ * The view hands size, touch and drawing to the overlay, the track starts at a fixed duration per screen.
+ */
+public class FilmstripTrackView extends View {
+    // milliseconds of video across the view before zooming, as screen_duration of VideoTrackView
+    public static final int DEFAULT_SCREEN_DURATION = 30000;
+
+    // Components
+    private VideoTrackOverlay mVideoTrackOverlay;
+    private VideoTrackView.Track mTrack;
+
+    // Attributes
+    private int mScreenDuration;
+    private int mVideoDuration;		// milliseconds, 0 while no video is set
+
+    // Constructors
+    public FilmstripTrackView(Context context) {
+        super(context);
+        initView();
+    }
+
+    public FilmstripTrackView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        initView();
+    }
+
+    public FilmstripTrackView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        initView();
+    }
+
+    private void initView() {
+        mTrack = new VideoTrackView.Track();
+        mScreenDuration = DEFAULT_SCREEN_DURATION;
+    }
+
+    public void setVideoTrackOverlay(VideoTrackOverlay videoTrackOverlay) {
+        mVideoTrackOverlay = videoTrackOverlay;
+
+        if(getWidth() > 0) {
+            mVideoTrackOverlay.onSurfaceChanged(getWidth(), getHeight());
+            openVideo();
+        }
+    }
+
+    public void setScreenDuration(int screenDuration) {
+        mScreenDuration = screenDuration;
+    }
+
+    // int videoDuration: duration of the video in milliseconds, the overlay loads the strip of its own path
+    public void setVideo(int videoDuration) {
+        mVideoDuration = videoDuration;
+        openVideo();
+        invalidate();
+    }
+
+    // the track is as long as the video at the screen duration, the overlay moves and zooms it from there
+    private void openVideo() {
+        if(mVideoTrackOverlay == null || mVideoDuration <= 0 || getWidth() == 0) {
+            return;
+        }
+
+        float millisecondsPerWidth = getWidth() / (float) mScreenDuration;
+        mTrack.left = 0;
+        mTrack.right = mVideoDuration * millisecondsPerWidth;
+        mVideoTrackOverlay.onSetVideo(mVideoDuration, millisecondsPerWidth);
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        if(mVideoTrackOverlay != null) {
+            mVideoTrackOverlay.onSurfaceChanged(width, height);
+            openVideo();
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if(mVideoTrackOverlay == null || mVideoDuration <= 0) {
+            return super.onTouchEvent(event);
+        }
+
+        boolean handled = mVideoTrackOverlay.onTrackTouchEvent(mTrack, event);
+        invalidate();
+
+        return handled;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        if(mVideoTrackOverlay != null) {
+            mVideoTrackOverlay.drawOverlay(canvas);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves picked video URIs to a readable input path and its metadata, once per URI.
+ * A URI with a readable file path uses it, any other URI is opened as a file descriptor and read through /proc,
+ * so a content URI is never copied to a temp file first.
+ * Recent sources are kept, the oldest one is released when the limit is passed and closed once no job or view holds it.
+ */
+public class InputResolver {
+    public static final int MAX_SOURCES = 8;
+
+    private static InputResolver sInstance;
+
+    // Components
+    private ContentResolver mContentResolver;
+    private ExecutorService mExecutor;
+    private Handler mMainHandler;
+
+    // Working Variables
+    private final LinkedHashMap<String, VideoSource> mSources;
+
+    public static synchronized InputResolver getInstance(Context context) {
+        if(sInstance == null) {
+            sInstance = new InputResolver(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    // Constructors
+    private InputResolver(Context context) {
+        mContentResolver = context.getContentResolver();
+        mExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+
+        // access order, so the eldest entry is the least recently picked
+        mSources = new LinkedHashMap<String, VideoSource>(MAX_SOURCES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VideoSource> eldest) {
+                if(size() > MAX_SOURCES) {
+                    eldest.getValue().release();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    // resolve on the resolver thread, listener is called on main thread with null when the URI can't be read
+    public void resolve(final Uri uri, final OnResolveListener onResolveListener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final VideoSource source = resolve(uri);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onResolveListener.onResolve(uri, source);
+                    }
+                });
+            }
+        });
+    }
+
+    // cached source of the URI or a new one, do not call on main thread
+    public VideoSource resolve(Uri uri) {
+        String key = uri.toString();
+
+        synchronized(mSources) {
+            VideoSource source = mSources.get(key);
+            if(source != null) {
+                return source;
+            }
+        }
+
+        VideoSource source = open(uri);
+        if(source == null) {
+            return null;
+        }
+        readMetadata(source);
+
+        synchronized(mSources) {
+            mSources.put(key, source);
+        }
+
+        return source;
+    }
+
+    private VideoSource open(Uri uri) {
+        String path = queryPath(uri);
+        if(path != null && new File(path).canRead()) {
+            return new VideoSource(uri, path, null);
+        }
+
+        // other processes can't open the path, FFmpegRunner hands the file to ffmpeg itself
+        try {
+            ParcelFileDescriptor descriptor = mContentResolver.openFileDescriptor(uri, "r");
+            if(descriptor != null) {
+                return new VideoSource(uri, VideoSource.getDescriptorPath(descriptor), descriptor);
+            }
+        } catch (IOException | SecurityException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    // file path of file and media store URIs, null for others
+    private String queryPath(Uri uri) {
+        if("file".equals(uri.getScheme())) {
+            return uri.getPath();
+        }
+
+        Cursor cursor = null;
+        try {
+            String[] projection = { MediaStore.Video.Media.DATA };
+            cursor = mContentResolver.query(uri, projection, null, null, null);
+            if(cursor != null && cursor.moveToFirst()) {
+                int columnIndex = cursor.getColumnIndex(MediaStore.Video.Media.DATA);
+                return columnIndex >= 0 ? cursor.getString(columnIndex) : null;
+            }
+        } catch (RuntimeException e) {
+            // providers without a data column may throw instead of returning nothing
+            e.printStackTrace();
+        } finally {
+            if(cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return null;
+    }
+
+    // the retriever may run in the media server, so a descriptor source is passed as a descriptor
+    private static void readMetadata(VideoSource source) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            if(source.isDescriptor()) {
+                retriever.setDataSource(source.getDescriptor().getFileDescriptor());
+            } else {
+                retriever.setDataSource(source.getPath());
+            }
+
+            source.setMetadata(parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION)) * 1000,
+                    (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH)),
+                    (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT)),
+                    (int) parseLong(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION)),
+                    "yes".equals(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_HAS_AUDIO)));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            retriever.release();
+        }
+    }
+
+    private static long parseLong(String value) {
+        if(value == null) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public interface OnResolveListener {
+        void onResolve(Uri uri, VideoSource source);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * Timings and counters of one crop job, recorded by {@link CropQueue} into a {@link MetricsRecorder}.
+ * Times are uptime milliseconds, durations are -1 until they happen.
+ */
+public class JobMetrics {
+    // Job
+    public int jobId;
+    public String parameters;		// job key of the builder, filter and encode options
+    public int flags;
+    public String device;			// model, ABI and cores, to group devices of a class
+
+    // Timings
+    public long enqueueMs;
+    public long startMs;			// worker picked the job
+    public long spawnMs = -1;		// ffmpeg process start of the first run
+    public long firstFrameMs = -1;	// start to first encoded frame
+    public long totalMs = -1;		// start to finish
+
+    // Throughput
+    public long frames;
+    public float averageFps;
+    public float peakFps;
+    public long bytesRead;			// read by ffmpeg, 0 when /proc can't tell
+    public long bytesWritten;		// size of the outputs
+
+    // Result
+    public int exitCode = -1;
+    public boolean success;
+    public boolean cacheHit;
+
+    public long getQueueWaitMs() {
+        return startMs - enqueueMs;
+    }
+
+    // called for every parsed progress update of a run
+    public void onProgress(CropProgress progress, long nowMs) {
+        onProgress(progress, 0, nowMs);
+    }
+
+    // long framesBefore: frames of the job's earlier runs, the progress counts frames of its run only
+    public void onProgress(CropProgress progress, long framesBefore, long nowMs) {
+        if(firstFrameMs < 0 && progress.frame > 0) {
+            firstFrameMs = nowMs - startMs;
+        }
+        if(progress.fps > peakFps) {
+            peakFps = progress.fps;
+        }
+        if(framesBefore + progress.frame > frames) {
+            frames = framesBefore + progress.frame;
+        }
+    }
+
+    public void finish(boolean success, long nowMs) {
+        this.success = success;
+        totalMs = nowMs - startMs;
+
+        long encodeMs = firstFrameMs >= 0 ? totalMs - firstFrameMs : totalMs;
+        averageFps = encodeMs > 0 ? frames * 1000f / encodeMs : 0;
+    }
+
+    // one JSON object without line breaks
+    public void toJson(StringBuilder json) {
+        json.append('{');
+        json.append("\"jobId\":").append(jobId);
+        json.append(",\"parameters\":");
+        appendString(json, parameters);
+        json.append(",\"flags\":").append(flags);
+        json.append(",\"device\":");
+        appendString(json, device);
+        json.append(",\"queueWaitMs\":").append(getQueueWaitMs());
+        json.append(",\"spawnMs\":").append(spawnMs);
+        json.append(",\"firstFrameMs\":").append(firstFrameMs);
+        json.append(",\"totalMs\":").append(totalMs);
+        json.append(",\"frames\":").append(frames);
+        json.append(",\"averageFps\":").append(averageFps);
+        json.append(",\"peakFps\":").append(peakFps);
+        json.append(",\"bytesRead\":").append(bytesRead);
+        json.append(",\"bytesWritten\":").append(bytesWritten);
+        json.append(",\"exitCode\":").append(exitCode);
+        json.append(",\"success\":").append(success);
+        json.append(",\"cacheHit\":").append(cacheHit);
+        json.append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if(value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch(c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
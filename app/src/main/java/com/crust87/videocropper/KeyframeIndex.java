@@ -0,0 +1,183 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sorted key frame timestamps of a video track.
+ * Lookups are binary searches over a primitive array, so they are cheap enough to run on every touch event.
+ *
+ * File format, big endian: version int, count int, then count timestamps in microseconds as longs.
+ */
+public class KeyframeIndex {
+    private static final int VERSION = 1;
+    private static final String PTS_TIME = "pts_time:";
+
+    // Attributes
+    private final long[] mTimesUs;
+
+    // Constructors
+    // long[] timesUs: key frame times, the first count are taken and sorted
+    public KeyframeIndex(long[] timesUs, int count) {
+        mTimesUs = Arrays.copyOf(timesUs, count);
+        Arrays.sort(mTimesUs);
+    }
+
+    public int size() {
+        return mTimesUs.length;
+    }
+
+    public long get(int index) {
+        return mTimesUs[index];
+    }
+
+    // last key frame at or before timeUs, -1 when there is none
+    public long floor(long timeUs) {
+        int index = Arrays.binarySearch(mTimesUs, timeUs);
+        if(index >= 0) {
+            return mTimesUs[index];
+        }
+
+        int insertion = -index - 1;
+        return insertion > 0 ? mTimesUs[insertion - 1] : -1;
+    }
+
+    // first key frame at or after timeUs, -1 when there is none
+    public long ceiling(long timeUs) {
+        int index = Arrays.binarySearch(mTimesUs, timeUs);
+        if(index >= 0) {
+            return mTimesUs[index];
+        }
+
+        int insertion = -index - 1;
+        return insertion < mTimesUs.length ? mTimesUs[insertion] : -1;
+    }
+
+    // closest key frame, the earlier one on a tie, -1 for an empty index
+    public long nearest(long timeUs) {
+        long floor = floor(timeUs);
+        long ceiling = ceiling(timeUs);
+
+        if(floor < 0) {
+            return ceiling;
+        }
+        if(ceiling < 0) {
+            return floor;
+        }
+
+        return timeUs - floor <= ceiling - timeUs ? floor : ceiling;
+    }
+
+    public boolean isKeyframe(long timeUs) {
+        return Arrays.binarySearch(mTimesUs, timeUs) >= 0;
+    }
+
+    // written to a temp file and renamed, so a reader never sees half an index
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            output.writeInt(VERSION);
+            output.writeInt(mTimesUs.length);
+            for(long timeUs: mTimesUs) {
+                output.writeLong(timeUs);
+            }
+        } finally {
+            output.close();
+        }
+
+        if(!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("can't rename " + temp);
+        }
+    }
+
+    // return null when the file is missing or broken
+    public static KeyframeIndex read(File file) {
+        if(!file.exists()) {
+            return null;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            if(input.readInt() != VERSION) {
+                return null;
+            }
+
+            int count = input.readInt();
+            if(count < 0 || count > file.length() / 8) {
+                return null;
+            }
+
+            long[] timesUs = new long[count];
+            for(int i = 0; i < count; i++) {
+                timesUs[i] = input.readLong();
+            }
+
+            return new KeyframeIndex(timesUs, count);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if(input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // frame time of an ffmpeg showinfo line, -1 for other lines
+    // [Parsed_showinfo_0 @ 0x7f8c] n:   3 pts: 276480 pts_time:3.6     pos: 1027385 ...
+    public static long parseShowInfoTime(String line) {
+        int start = line.indexOf(PTS_TIME);
+        if(start < 0 || line.indexOf("showinfo") < 0) {
+            return -1;
+        }
+
+        start += PTS_TIME.length();
+        int end = start;
+        while(end < line.length() && line.charAt(end) != ' ') {
+            end++;
+        }
+
+        try {
+            return Math.round(Double.parseDouble(line.substring(start, end)) * 1000000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+import android.media.MediaExtractor;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds {@link KeyframeIndex}es in the background and keeps them in memory and next to the thumbnails on disk.
+ * The index is read from the container's sync sample table with MediaExtractor,
+ * and falls back to decoding key frames only with ffmpeg when the extractor can't walk them.
+ */
+public class KeyframeProbe {
+    private static final String DISK_DIR = "keyframes";
+    private static final int MEMORY_MAX_COUNT = 16;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static KeyframeProbe sInstance;
+
+    // Components
+    private Context mContext;
+    private final LruCache<String, KeyframeIndex> mMemoryCache;
+    private final File mDiskDir;
+    private ExecutorService mExecutor;
+    private Handler mMainHandler;
+
+    public static synchronized KeyframeProbe getInstance(Context context) {
+        if(sInstance == null) {
+            sInstance = new KeyframeProbe(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    // Constructors
+    private KeyframeProbe(Context context) {
+        mContext = context;
+        mMemoryCache = new LruCache<>(MEMORY_MAX_COUNT);
+        mDiskDir = new File(context.getCacheDir(), DISK_DIR);
+        mExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    // memory only, null until probed
+    public KeyframeIndex get(String path) {
+        return mMemoryCache.get(getKey(path));
+    }
+
+    // probe on the probe thread, listener is called on main thread with null when no key frame was found
+    public void probe(final String path, final OnProbeListener onProbeListener) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final KeyframeIndex index = load(path);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onProbeListener.onProbe(path, index);
+                    }
+                });
+            }
+        });
+    }
+
+    // memory, disk, then a new probe, do not call on main thread
+    public KeyframeIndex load(String path) {
+        String key = getKey(path);
+
+        KeyframeIndex index = mMemoryCache.get(key);
+        if(index != null) {
+            return index;
+        }
+
+        File file = new File(mDiskDir, CacheFiles.hash(key) + ".idx");
+        index = KeyframeIndex.read(file);
+
+        if(index == null) {
+            index = probeExtractor(path);
+            if(index == null) {
+                index = probeFFmpeg(path);
+            }
+            if(index == null) {
+                return null;
+            }
+
+            if(mDiskDir.isDirectory() || mDiskDir.mkdirs()) {
+                try {
+                    index.write(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        mMemoryCache.put(key, index);
+        return index;
+    }
+
+    // jump from sync sample to sync sample, no frame is read
+    private static KeyframeIndex probeExtractor(String path) {
+        if(Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return null;
+        }
+
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+            if(VideoProbe.selectVideoTrack(extractor) < 0) {
+                return null;
+            }
+
+            long[] timesUs = new long[INITIAL_CAPACITY];
+            int count = 0;
+
+            extractor.seekTo(0, MediaExtractor.SEEK_TO_NEXT_SYNC);
+            long timeUs = extractor.getSampleTime();
+            while(timeUs >= 0) {
+                if(count == timesUs.length) {
+                    timesUs = grow(timesUs);
+                }
+                timesUs[count++] = timeUs;
+
+                extractor.seekTo(timeUs + 1, MediaExtractor.SEEK_TO_NEXT_SYNC);
+                long nextUs = extractor.getSampleTime();
+                if(nextUs >= 0 && nextUs <= timeUs) {
+                    // extractor without a sync table lands back on the same frame
+                    return null;
+                }
+                timeUs = nextUs;
+            }
+
+            return count > 0 ? new KeyframeIndex(timesUs, count) : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    // decode key frames only and read their times from showinfo
+    private KeyframeIndex probeFFmpeg(String path) {
+        ShowInfoCollector collector = new ShowInfoCollector();
+
+        try {
+            FFmpegRunner runner = new FFmpegRunner(FFmpegInstaller.getInstance(mContext).install());
+            runner.setOnReadProcessLineListener(collector);
+            runner.execute(CropCommandBuilder.buildKeyframeProbe(path));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        return collector.count > 0 ? new KeyframeIndex(collector.timesUs, collector.count) : null;
+    }
+
+    private static long[] grow(long[] array) {
+        long[] next = new long[array.length * 2];
+        System.arraycopy(array, 0, next, 0, array.length);
+
+        return next;
+    }
+
+    // an edited file gets a new index
+    private static String getKey(String path) {
+        return VideoSource.getStableKey(path) + '@' + new File(path).lastModified();
+    }
+
+    private static class ShowInfoCollector implements FFmpegRunner.OnReadProcessLineListener {
+        private long[] timesUs = new long[INITIAL_CAPACITY];
+        private int count;
+
+        @Override
+        public void onReadProcessLine(String line) {
+            long timeUs = KeyframeIndex.parseShowInfoTime(line);
+            if(timeUs < 0) {
+                return;
+            }
+
+            if(count == timesUs.length) {
+                timesUs = grow(timesUs);
+            }
+            timesUs[count++] = timeUs;
+        }
+    }
+
+    public interface OnProbeListener {
+        void onProbe(String path, KeyframeIndex index);
+    }
+}
@@ -20,46 +20,73 @@ package com.crust87.videocropper;
  * limitations under the License.
  */
 
-import android.app.ProgressDialog;
+import android.app.AlertDialog;
 import android.content.Intent;
-import android.database.Cursor;
+import android.graphics.Bitmap;
 import android.media.MediaPlayer;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Environment;
-import android.os.Handler;
-import android.os.Message;
-import android.provider.MediaStore;
+import android.os.SystemClock;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.crust87.ffmpegexecutor.FFmpegExecutor;
 import com.crust87.videocropview.VideoCropView;
-import com.crust87.videotrackview.VideoTrackView;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+
+    // long side and bitrate of each size of the rendition ladder
+    private static final int[] RENDITION_SIZES = {640, 480, 360};
+    private static final String[] RENDITION_BITRATES = {"1000k", "700k", "400k"};
+
+    // stills of the crop window preview
+    private static final int PREVIEW_FRAME_COUNT = 6;
+    private static final int PREVIEW_LONG_SIDE = 320;
+
     // Layout Components
     private VideoCropView mVideoCropView;
-    private VideoTrackView mAnchorVideoTrackView;
+    private FilmstripTrackView mAnchorVideoTrackView;
     private AnchorOverlay mAnchorOverlay;
-    private ProgressDialog mProgressDialog;
 
     private TextView mTextSeek;
     private TextView mTextDuration;
+    private TextView mTextJobs;
+    private TimeText mSeekText;
+    private TimeText mDurationText;
 
     // Component
-    private FFmpegExecutor mExecutor;
+    private CropQueue mCropQueue;
+    private ProxyManager mProxyManager;
+    private InputResolver mInputResolver;
+    private PresetCalibrator mPresetCalibrator;
+    private PreviewFrameLoader mPreviewFrameLoader;
 
     // Attributes
-    private String originalPath;
+    private Uri originalUri;
+    private String originalPath;		// input path of the resolved source, null until resolved
+    private VideoSource mOriginalSource;	// held open while it's the video of the view, null until resolved
+    private int mOriginalWidth;		// stored frame size and rotation of original video
+    private int mOriginalHeight;
+    private int mOriginalRotate;
+    private boolean mOriginalHasAudio;
+    private boolean isPreviewProxy;	// crop view plays the proxy instead of original video
+    private float mPreviewScale;		// original pixels per preview pixel
+    private KeyframeIndex mKeyframes;	// null until the original is probed
 
     // Working Variables
     private int mVideoSeek;			// generated video seek
@@ -67,9 +94,16 @@ public class MainActivity extends AppCompatActivity {
 
     private int mRatioWidth;
     private int mRatioHeight;
+    private boolean mSmartCut;		// re-encode only the edge GOPs of a trim
+    private boolean mSegmented;		// resumable chunked encode
+    private boolean mRenditionLadder;	// encode every size of the ladder in one run
+    private boolean mDropAudio;		// output without audio
+    private boolean mExtractAudio;		// copy audio extracted once per source
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long createMs = SystemClock.uptimeMillis();
+
         super.onCreate(savedInstanceState);
         getSupportActionBar().setElevation(0);
 
@@ -79,6 +113,47 @@ public class MainActivity extends AppCompatActivity {
         loadGUI();
         initFFmpeg();
         bindEvent();
+        logFirstFrame(createMs);
+    }
+
+    // time from onCreate to the first drawn frame, for cold start and rotation
+    private void logFirstFrame(final long createMs) {
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                Log.d(TAG, "time to first frame: " + (SystemClock.uptimeMillis() - createMs) + "ms");
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        // keep crop jobs running across configuration changes
+        return mCropQueue;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        mAnchorOverlay.release();
+        releaseOriginalSource();
+        if(mProxyManager != null) {
+            mProxyManager.release();
+        }
+        if(mPreviewFrameLoader != null) {
+            mPreviewFrameLoader.release();
+        }
+
+        // leaving kills running encodes and deletes their partial outputs
+        if(isFinishing() && mCropQueue != null) {
+            mCropQueue.setOnCropJobListener(null);
+            mCropQueue.cancelAll();
+            mCropQueue.shutdown();
+        }
     }
 
     @Override
@@ -102,21 +177,64 @@ public class MainActivity extends AppCompatActivity {
                 mRatioWidth = 4;
                 mRatioHeight = 3;
                 mVideoCropView.setRatio(4, 3);
+                updateSnapping();
                 return true;
             case R.id.action_set_ratio11:
                 mRatioWidth = 1;
                 mRatioHeight = 1;
                 mVideoCropView.setRatio(1, 1);
+                updateSnapping();
                 return true;
             case R.id.action_set_ratio34:
                 mRatioWidth = 3;
                 mRatioHeight = 4;
                 mVideoCropView.setRatio(3, 4);
+                updateSnapping();
                 return true;
             case R.id.action_set_ratio_original:
                 mRatioWidth = 0;
                 mRatioHeight = 0;
                 mVideoCropView.setOriginalRatio();
+                updateSnapping();
+                return true;
+            case R.id.action_smart_cut:
+                mSmartCut = !item.isChecked();
+                item.setChecked(mSmartCut);
+                return true;
+            case R.id.action_segmented:
+                mSegmented = !item.isChecked();
+                item.setChecked(mSegmented);
+                return true;
+            case R.id.action_drop_audio:
+                mDropAudio = !item.isChecked();
+                item.setChecked(mDropAudio);
+                return true;
+            case R.id.action_extract_audio:
+                mExtractAudio = !item.isChecked();
+                item.setChecked(mExtractAudio);
+                return true;
+            case R.id.action_pause_jobs:
+                mCropQueue.setPaused(!item.isChecked());
+                item.setChecked(mCropQueue.isPaused());
+                return true;
+            case R.id.action_cancel_jobs:
+                mCropQueue.cancelAll();
+                return true;
+            case R.id.action_add_range:
+                mAnchorOverlay.addCurrentRange();
+                return true;
+            case R.id.action_clear_ranges:
+                mAnchorOverlay.clearRanges();
+                return true;
+            case R.id.action_preview_frames:
+                previewFrames();
+                return true;
+            case R.id.action_export_metrics:
+                exportMetrics();
+                return true;
+            case R.id.action_rendition_ladder:
+                mRenditionLadder = !item.isChecked();
+                item.setChecked(mRenditionLadder);
                 return true;
             default:
                 return super.onOptionsItemSelected(item);
@@ -127,22 +245,39 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         mVideoCropView = (VideoCropView) findViewById(R.id.cropVideoView);
-        mAnchorVideoTrackView = (VideoTrackView) findViewById(R.id.anchorVideoTrackView);
+        mAnchorVideoTrackView = (FilmstripTrackView) findViewById(R.id.anchorVideoTrackView);
         mTextSeek = (TextView) findViewById(R.id.textSeek);
         mTextDuration = (TextView) findViewById(R.id.textDuration);
+        mTextJobs = (TextView) findViewById(R.id.textJobs);
+        mSeekText = new TimeText("seek: ");
+        mDurationText = new TimeText("duration: ");
 
         mAnchorOverlay = new AnchorOverlay(getApplicationContext());
         mAnchorVideoTrackView.setVideoTrackOverlay(mAnchorOverlay);
     }
 
+    // the binary is installed or verified in the background, the first job doesn't wait for the copy
     private void initFFmpeg() {
-        try {
-            InputStream ffmpegFileStream = getApplicationContext().getAssets().open("ffmpeg");
-            mExecutor = new FFmpegExecutor(getApplicationContext(), ffmpegFileStream);
-        } catch (Exception e) {
-            Toast.makeText(getApplicationContext(), "Fail FFmpeg Setting", Toast.LENGTH_LONG).show();
-            finish();
+        FFmpegInstaller.getInstance(getApplicationContext()).installAsync(null);
+
+        mCropQueue = (CropQueue) getLastCustomNonConfigurationInstance();
+        if(mCropQueue == null) {
+            try {
+                mCropQueue = new CropQueue(getApplicationContext());
+            } catch (Exception e) {
+                Toast.makeText(getApplicationContext(), "Fail FFmpeg Setting", Toast.LENGTH_LONG).show();
+                finish();
+                return;
+            }
         }
+
+        mProxyManager = new ProxyManager(getApplicationContext(), mCropQueue);
+        mPreviewFrameLoader = new PreviewFrameLoader(mCropQueue);
+        mInputResolver = InputResolver.getInstance(getApplicationContext());
+
+        // once per device while nothing else encodes, crops use x264 defaults until it's done
+        mPresetCalibrator = PresetCalibrator.getInstance(getApplicationContext());
+        mPresetCalibrator.calibrateAsync(mCropQueue);
     }
 
     private void bindEvent() {
@@ -150,17 +285,55 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onPrepared(MediaPlayer mp) {
+                if(isPreviewProxy) {
+                    mPreviewScale = getDisplayWidth(mOriginalWidth, mOriginalHeight, mOriginalRotate)
+                            / (float) getDisplayWidth(mVideoCropView.getVideoWidth(), mVideoCropView.getVideoHeight(), mVideoCropView.getRotate());
+                    mVideoCropView.seekTo(mVideoSeek);
+                } else {
+                    mOriginalWidth = mVideoCropView.getVideoWidth();
+                    mOriginalHeight = mVideoCropView.getVideoHeight();
+                    mOriginalRotate = mVideoCropView.getRotate();
+                    mPreviewScale = 1;
+
+                    if(openProxy()) {
+                        return;
+                    }
+                }
+
                 mVideoCropView.start();
             }
         });
 
-        mExecutor.setOnReadProcessLineListener(new FFmpegExecutor.OnReadProcessLineListener() {
+        mCropQueue.setOnCropJobListener(new CropQueue.OnCropJobListener() {
+            @Override
+            public void onJobStart(CropJob job) {
+                updateJobText(job, "start");
+            }
+
+            @Override
+            public void onJobProgress(CropJob job, CropProgress progress) {
+                updateJobText(job, (int) progress.percent + "% " + (int) progress.fps + "fps"
+                        + (progress.etaMs >= 0 ? " eta " + progress.etaMs / 1000 + "s" : ""));
+            }
+
+            @Override
+            public void onJobComplete(CropJob job, boolean success) {
+                updateJobText(job, success ? (job.isCacheHit() ? "done, cached" : "done") : job.getState().name());
+                Toast.makeText(getApplicationContext(), job.getOutput(), Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        mAnchorOverlay.setOnFrameLoadedListener(new FilmstripLoader.OnFrameLoadedListener() {
+            @Override
+            public void onFrameLoaded(int level, int index) {
+                mAnchorVideoTrackView.invalidate();
+            }
+        });
+
+        mAnchorOverlay.setOnUpdateRangesListener(new AnchorOverlay.OnUpdateRangesListener() {
             @Override
-            public void onReadProcessLine(String line) {
-                Message message = Message.obtain();
-                message.obj = line;
-                message.setTarget(mMessageHandler);
-                message.sendToTarget();
+            public void onUpdateRanges(RangeList ranges) {
+                mAnchorVideoTrackView.invalidate();
             }
         });
 
@@ -175,8 +348,10 @@ public class MainActivity extends AppCompatActivity {
                 mVideoSeek = seek;
                 mVideoDuration = duration;
 
-                mTextSeek.setText("seek: " + mVideoSeek / 1000f);
-                mTextDuration.setText("duration: " + mVideoDuration / 1000f);
+                mSeekText.setMillis(mVideoSeek);
+                mDurationText.setMillis(mVideoDuration);
+                mTextSeek.setText(mSeekText.getBuffer(), 0, mSeekText.length());
+                mTextDuration.setText(mDurationText.getBuffer(), 0, mDurationText.length());
             }
 
             @Override
@@ -190,17 +365,9 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private Handler mMessageHandler = new Handler() {
-        @Override
-        public void handleMessage(Message msg) {
-            super.handleMessage(msg);
-
-            String message = (String) msg.obj;
-            if(mProgressDialog != null) {
-                mProgressDialog.setMessage(message);
-            }
-        }
-    };
+    private void updateJobText(CropJob job, String message) {
+        mTextJobs.setText("jobs: " + mCropQueue.getPendingJobCount() + ", #" + job.getId() + " " + message);
+    }
 
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
@@ -217,137 +384,226 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void cropVideo() {
+        if(originalPath == null) {
+            return;
+        }
+
         mVideoCropView.pause();
 
-        new AsyncTask<Void, Void, Void>() {
-
-            float scale;
-            int viewWidth;
-            int viewHeight;
-            int width;
-            int height;
-            int positionX;
-            int positionY;
-            int videoWidth;
-            int videoHeight;
-            int rotate;
-            String start;
-            String dur;
+        int flags = 0;
+        if(mSmartCut) {
+            flags |= CropJob.FLAG_SMART_CUT;
+        }
+        if(mSegmented) {
+            flags |= CropJob.FLAG_SEGMENTED;
+        }
+        if(mExtractAudio) {
+            flags |= CropJob.FLAG_EXTRACT_AUDIO;
+        }
 
-            @Override
-            protected void onPreExecute() {
-                mExecutor.init();
-                mProgressDialog = ProgressDialog.show(MainActivity.this, null, "execute....", true);
-
-                scale = mVideoCropView.getScale();
-                viewWidth = mVideoCropView.getWidth();
-                viewHeight = mVideoCropView.getHeight();
-                width = (int)(viewWidth * scale);
-                height = (int)(viewHeight * scale);
-                positionX = (int) mVideoCropView.getRealPositionX();
-                positionY = (int) mVideoCropView.getRealPositionY();
-                videoWidth = mVideoCropView.getVideoWidth();
-                videoHeight = mVideoCropView.getVideoHeight();
-                rotate = mVideoCropView.getRotate();
-
-                int startMinute = mVideoSeek / 60000;
-                int startSeconds = mVideoSeek - startMinute*60000;
-                start = String.format("00:%02d:%02.2f", startMinute, startSeconds/1000f);
-                dur = String.format("00:00:%02.2f", mVideoDuration/1000f);
-            }
+        // the user waits for the export, it starts ahead of background jobs and isn't stopped by previews
+        mCropQueue.enqueue(mOriginalSource, newCommandBuilder(), null, flags, CropJob.PRIORITY_FOREGROUND);
+    }
 
+    // stills of the crop window over the range, shown in a dialog
+    private void previewFrames() {
+        if(originalPath == null) {
+            return;
+        }
+
+        mVideoCropView.pause();
+        mPreviewFrameLoader.load(newCommandBuilder(), PREVIEW_FRAME_COUNT, PREVIEW_LONG_SIDE, new PreviewFrameLoader.OnPreviewReadyListener() {
             @Override
-            protected Void doInBackground(Void... params) {
-                try {
-                    mExecutor.putCommand("-y")
-                            .putCommand("-i")
-                            .putCommand(originalPath)
-                            .putCommand("-vcodec")
-                            .putCommand("libx264")
-                            .putCommand("-profile:v")
-                            .putCommand("baseline")
-                            .putCommand("-level")
-                            .putCommand("3.1")
-                            .putCommand("-b:v")
-                            .putCommand("1000k")
-                            .putCommand("-ss")
-                            .putCommand(start)
-                            .putCommand("-t")
-                            .putCommand(dur);
-
-                    // When need crop
-                    // FIXME
-                    if(mRatioWidth != 0) {
-                        String filter = "";
-
-                        // FIXME
-                        String filterScale = "setsar=1:1";
-                        if(mRatioWidth == 4) {
-                            filterScale = "scale=640:480, setsar=1:1";
-                        } else if(mRatioWidth == 3) {
-                            filterScale = "scale=480:640, setsar=1:1";
-                        } else if(mRatioWidth == 1) {
-                            filterScale = "scale=640:640, setsar=1:1";
-                        }
-
-                        if(rotate == 0) {
-                            filter = "crop="+width+":"+height+":"+positionX+":"+positionY+ ", " + filterScale;
-                        } else if(rotate == 90) {
-                            filter = "crop="+height+":"+width+":"+positionY+":"+positionX + ", " + filterScale;
-                        } else if(rotate == 180) {
-                            filter = "crop="+width+":"+height+":"+(videoWidth - positionX - width)+":"+positionY + ", " + filterScale;
-                        } else if(rotate == 270) {
-                            filter = "crop="+height+":"+width+":"+(videoHeight - positionY - height)+":"+positionX + ", " + filterScale;
-                        } else {
-                            filter = "crop="+width+":"+height+":"+positionX+":"+positionY + ", " + filterScale;
-                        }
-
-                        mExecutor.putCommand("-vf")
-                                .putCommand(filter);
-                    }
+            public void onPreviewReady(Bitmap[] frames, int count) {
+                if(isFinishing()) {
+                    return;
+                }
 
-                    mExecutor.putCommand("-c:a")
-                            .putCommand("copy")
-                            .putCommand(Environment.getExternalStorageDirectory().getAbsolutePath() + "/result.mp4")
-                            .executeCommand();
-                } catch (IOException e) {
-                    e.printStackTrace();
+                LinearLayout layout = new LinearLayout(MainActivity.this);
+                layout.setOrientation(LinearLayout.VERTICAL);
+                for(int i = 0; i < count; i++) {
+                    ImageView image = new ImageView(MainActivity.this);
+                    image.setAdjustViewBounds(true);
+                    image.setImageBitmap(frames[i]);
+                    layout.addView(image);
                 }
 
-                return null;
+                ScrollView scrollView = new ScrollView(MainActivity.this);
+                scrollView.addView(layout);
+                new AlertDialog.Builder(MainActivity.this)
+                        .setView(scrollView)
+                        .show();
             }
+        });
+    }
 
-            @Override
-            protected void onPostExecute(Void aVoid) {
-                mProgressDialog.dismiss();
-                mProgressDialog = null;
+    // job metrics of this queue as JSON lines next to the results
+    private void exportMetrics() {
+        File file = new File(Environment.getExternalStorageDirectory(), "metrics_" + System.currentTimeMillis() + ".jsonl");
+        try {
+            FileWriter writer = new FileWriter(file);
+            try {
+                mCropQueue.getMetricsRecorder().exportJsonLines(writer);
+            } finally {
+                writer.close();
+            }
+            Toast.makeText(getApplicationContext(), file.getAbsolutePath(), Toast.LENGTH_SHORT).show();
+        } catch (IOException e) {
+            Toast.makeText(getApplicationContext(), "Fail Metrics Export", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // crop parameters of current view state
+    // crop rectangle of a proxy preview is scaled up to original video
+    private CropCommandBuilder newCommandBuilder() {
+        float previewScale = isPreviewProxy ? mPreviewScale : 1;
+        float scale = mVideoCropView.getScale() * previewScale;
+
+        String outputPrefix = Environment.getExternalStorageDirectory().getAbsolutePath() + "/result_" + System.currentTimeMillis();
+
+        // with an edit list the ranges are joined into one output, a rendition ladder takes a single range
+        RangeList ranges = mAnchorOverlay.getRanges();
+
+        CropCommandBuilder builder = new CropCommandBuilder();
+        if(mRenditionLadder && ranges.size() < 2) {
+            for(int i = 0; i < RENDITION_SIZES.length; i++) {
+                builder.addRendition(new Rendition(outputPrefix + "_" + RENDITION_SIZES[i] + ".mp4", RENDITION_SIZES[i], RENDITION_BITRATES[i],
+                        CropCommandBuilder.VIDEO_PROFILE, CropCommandBuilder.VIDEO_LEVEL));
             }
+        } else {
+            builder.setOutput(outputPrefix + ".mp4");
+        }
 
-        }.execute();
+        builder.setVideoSize(mOriginalWidth, mOriginalHeight)
+                .setRotate(mOriginalRotate)
+                .setCrop((int) (mVideoCropView.getRealPositionX() * previewScale), (int) (mVideoCropView.getRealPositionY() * previewScale),
+                        (int) (mVideoCropView.getWidth() * scale), (int) (mVideoCropView.getHeight() * scale))
+                .setRatio(mRatioWidth, mRatioHeight)
+                .setRange(mVideoSeek * 1000L, mVideoDuration * 1000L)
+                .setRanges(ranges)
+                .setHasAudio(mOriginalHasAudio)
+                .setDropAudio(mDropAudio)
+                .setKeyframes(mKeyframes);
+
+        // the crop shares the CPU with the jobs ahead of it, chunks of a segmented crop fill the pool
+        int encodes = mSegmented ? mCropQueue.getPoolSize() : Math.min(mCropQueue.getPendingJobCount() + 1, mCropQueue.getPoolSize());
+        return builder.setEncodePreset(mPresetCalibrator.getPreset(builder.getDurationUs(), encodes));
     }
 
     // Initialization original video
+    // the crop view plays the URI at once, the track waits for the input path
     private void setOriginalVideo(Uri uri) {
-        originalPath = getRealPathFromURI(uri);
+        originalUri = uri;
+        originalPath = null;
+        releaseOriginalSource();
+        mOriginalWidth = 0;
+        mKeyframes = null;
+        updateSnapping();
+        isPreviewProxy = false;
+        mProxyManager.cancel();
 
         mVideoCropView.setVideoURI(uri);
         mVideoCropView.seekTo(1);
 
-        mAnchorVideoTrackView.setVideo(originalPath);
+        resolveOriginalVideo(uri);
     }
 
-    public String getRealPathFromURI(Uri contentUri) {
-        Cursor cursor = null;
-        try {
-            String[] proj = { MediaStore.Images.Media.DATA };
-            cursor = getApplicationContext().getContentResolver().query(contentUri, proj, null, null, null);
-            int column_index = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
-            cursor.moveToFirst();
-            return cursor.getString(column_index);
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+    private void resolveOriginalVideo(Uri uri) {
+        mInputResolver.resolve(uri, new InputResolver.OnResolveListener() {
+            @Override
+            public void onResolve(Uri uri, VideoSource source) {
+                if(!uri.equals(originalUri)) {
+                    return;
+                }
+
+                if(source == null) {
+                    Toast.makeText(getApplicationContext(), "Can't read video", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+
+                // released by the resolver since it was resolved, resolving again opens it again
+                if(!source.acquire()) {
+                    resolveOriginalVideo(uri);
+                    return;
+                }
+
+                setOriginalSource(source);
+            }
+        });
+    }
+
+    private void releaseOriginalSource() {
+        if(mOriginalSource != null) {
+            mOriginalSource.release();
+            mOriginalSource = null;
+        }
+    }
+
+    // the track uses a proxy already made for the video, the crop view switches to it once the original is prepared
+    // the source is acquired by the caller
+    private void setOriginalSource(VideoSource source) {
+        mOriginalSource = source;
+        originalPath = source.getPath();
+        mOriginalHasAudio = source.hasAudio();
+
+        File proxy = mProxyManager.getProxy(originalPath);
+        String trackPath = proxy != null ? proxy.getAbsolutePath() : originalPath;
+
+        // the overlay draws the strip from the thumbnail cache, nothing else decodes it
+        mAnchorOverlay.setVideoPath(trackPath);
+        mAnchorVideoTrackView.setVideo((int) (source.getDurationUs() / 1000));
+
+        if(!isPreviewProxy) {
+            openProxy();
+        }
+
+        KeyframeProbe.getInstance(getApplicationContext()).probe(originalPath, new KeyframeProbe.OnProbeListener() {
+            @Override
+            public void onProbe(String path, KeyframeIndex index) {
+                if(path.equals(originalPath)) {
+                    mKeyframes = index;
+                    updateSnapping();
+                }
             }
+        });
+    }
+
+    // the anchor snaps to key frames only for trims, where they are the cheap cuts
+    private void updateSnapping() {
+        mAnchorOverlay.setKeyframes(mRatioWidth == 0 ? mKeyframes : null);
+    }
+
+    // switch the crop view to a proxy of a large original, or start making one
+    // needs both the resolved path and the prepared original, returns true when the preview was switched
+    private boolean openProxy() {
+        if(originalPath == null || mOriginalWidth == 0 || !ProxyManager.needsProxy(mOriginalWidth, mOriginalHeight)) {
+            return false;
+        }
+
+        File proxy = mProxyManager.getProxy(originalPath);
+        if(proxy != null) {
+            previewProxy(proxy);
+            return true;
         }
+
+        mProxyManager.createProxy(originalPath, new ProxyManager.OnProxyReadyListener() {
+            @Override
+            public void onProxyReady(String path, File proxy) {
+                if(path.equals(originalPath)) {
+                    previewProxy(proxy);
+                }
+            }
+        });
+
+        return false;
+    }
+
+    private void previewProxy(File proxy) {
+        isPreviewProxy = true;
+        mVideoCropView.setVideoURI(Uri.fromFile(proxy));
+    }
+
+    private static int getDisplayWidth(int videoWidth, int videoHeight, int rotate) {
+        return rotate == 90 || rotate == 270 ? videoHeight : videoWidth;
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size ring of the latest job metrics.
+ * Workers record without locking, a slot is claimed with one atomic increment and the oldest record is overwritten.
+ */
+public class MetricsRecorder {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // Working Variables
+    private final AtomicReferenceArray<JobMetrics> mSlots;
+    private final AtomicLong mNextIndex;
+
+    // Constructors
+    public MetricsRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MetricsRecorder(int capacity) {
+        mSlots = new AtomicReferenceArray<>(capacity);
+        mNextIndex = new AtomicLong();
+    }
+
+    // the record must not be changed afterwards
+    public void record(JobMetrics metrics) {
+        long index = mNextIndex.getAndIncrement();
+        mSlots.set((int) (index % mSlots.length()), metrics);
+    }
+
+    // total recorded, including overwritten ones
+    public long getRecordCount() {
+        return mNextIndex.get();
+    }
+
+    // records still in the ring, oldest first
+    // a record written while this runs may be missing or may replace the oldest one
+    public List<JobMetrics> snapshot() {
+        long end = mNextIndex.get();
+        long start = Math.max(0, end - mSlots.length());
+
+        List<JobMetrics> records = new ArrayList<>((int) (end - start));
+        for(long i = start; i < end; i++) {
+            JobMetrics metrics = mSlots.get((int) (i % mSlots.length()));
+            if(metrics != null) {
+                records.add(metrics);
+            }
+        }
+
+        return records;
+    }
+
+    // a JSON object per line
+    public void exportJsonLines(Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder(512);
+        for(JobMetrics metrics: snapshot()) {
+            line.setLength(0);
+            metrics.toJson(line);
+            line.append('\n');
+            writer.append(line);
+        }
+        writer.flush();
+    }
+}
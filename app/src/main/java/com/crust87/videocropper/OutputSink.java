@@ -0,0 +1,153 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Where a crop job writes its output: a file path, a file descriptor, or a stream read while encoding.
+ * ffmpeg can't open the app's /proc entries in a release build, so a descriptor is handed to it as its stdout,
+ * the file itself from Android 8.0 like {@link FFmpegRunner} does with descriptor inputs, otherwise pipe:1 copied into it.
+ * Outputs that can't be seeked back, a stream, a pipe or a copied descriptor, are written as fragmented MP4.
+ */
+public class OutputSink {
+    public enum Type {file, descriptor, stream}
+
+    public static final String PIPE_PATH = "pipe:1";
+    public static final String STDOUT_PATH = "/proc/self/fd/1";
+    public static final String FORMAT = "mp4";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // Attributes
+    private final Type mType;
+    private final String mPath;
+    private final ParcelFileDescriptor mDescriptor;		// null unless a descriptor sink
+    private final File mStdoutFile;		// file ffmpeg's stdout is opened on, null unless a redirected descriptor sink
+    private final FFmpegRunner.OnReadProcessOutputListener mOnReadProcessOutputListener;	// reads pipe:1, null for a file or redirected descriptor
+
+    // Constructors
+    private OutputSink(Type type, String path, ParcelFileDescriptor descriptor, File stdoutFile, FFmpegRunner.OnReadProcessOutputListener onReadProcessOutputListener) {
+        mType = type;
+        mPath = path;
+        mDescriptor = descriptor;
+        mStdoutFile = stdoutFile;
+        mOnReadProcessOutputListener = onReadProcessOutputListener;
+    }
+
+    public static OutputSink file(String path) {
+        return new OutputSink(Type.file, path, null, null, null);
+    }
+
+    // a descriptor opened for writing, such as ContentResolver.openFileDescriptor(uri, "w") or a pipe
+    // it stays open and owned by the caller until the job completes
+    // a regular file this process can write becomes ffmpeg's stdout from Android 8.0 and keeps its seek,
+    // anything else gets the fragmented output copied from pipe:1 on the job's worker thread
+    public static OutputSink descriptor(ParcelFileDescriptor descriptor) {
+        File file = new File(VideoSource.getDescriptorPath(descriptor));
+        if(FFmpegRunner.canRedirect() && descriptor.getStatSize() >= 0 && file.canWrite()) {
+            return new OutputSink(Type.descriptor, STDOUT_PATH, descriptor, file, null);
+        }
+
+        return new OutputSink(Type.descriptor, PIPE_PATH, descriptor, null, new DescriptorWriter(descriptor));
+    }
+
+    // the listener reads the output from ffmpeg's stdout on the job's worker thread while it's encoded
+    // it should read to the end, fragments can be uploaded or hashed as they come
+    public static OutputSink stream(FFmpegRunner.OnReadProcessOutputListener onReadProcessOutputListener) {
+        return new OutputSink(Type.stream, PIPE_PATH, null, null, onReadProcessOutputListener);
+    }
+
+    public Type getType() {
+        return mType;
+    }
+
+    // output path for ffmpeg
+    public String getPath() {
+        return mPath;
+    }
+
+    public ParcelFileDescriptor getDescriptor() {
+        return mDescriptor;
+    }
+
+    // file to open as ffmpeg's stdout, null when the output is read from pipe:1 or written by path
+    public File getStdoutFile() {
+        return mStdoutFile;
+    }
+
+    public FFmpegRunner.OnReadProcessOutputListener getOnReadProcessOutputListener() {
+        return mOnReadProcessOutputListener;
+    }
+
+    public boolean isFile() {
+        return mType == Type.file;
+    }
+
+    // pipe:1 can't be seeked, only a descriptor opened as stdout can
+    public boolean isFragmented() {
+        switch(mType) {
+            case stream:
+                return true;
+            case descriptor:
+                return mStdoutFile == null;
+            default:
+                return false;
+        }
+    }
+
+    // output path, format and fragmenting of the builder, paths without an extension need the format
+    void applyTo(CropCommandBuilder builder) {
+        builder.setOutput(mPath)
+                .setOutputFormat(isFile() ? null : FORMAT)
+                .setFragmented(isFragmented());
+    }
+
+    // copies ffmpeg's stdout into the descriptor through a duplicate, so the one of its owner stays open
+    private static class DescriptorWriter implements FFmpegRunner.OnReadProcessOutputListener {
+        private final ParcelFileDescriptor mDescriptor;
+
+        public DescriptorWriter(ParcelFileDescriptor descriptor) {
+            mDescriptor = descriptor;
+        }
+
+        @Override
+        public void onReadProcessOutput(InputStream output) throws IOException {
+            OutputStream writer = new ParcelFileDescriptor.AutoCloseOutputStream(ParcelFileDescriptor.dup(mDescriptor.getFileDescriptor()));
+            try {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while((read = output.read(buffer)) != -1) {
+                    writer.write(buffer, 0, read);
+                }
+            } finally {
+                writer.close();
+            }
+        }
+    }
+}
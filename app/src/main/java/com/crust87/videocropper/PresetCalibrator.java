@@ -0,0 +1,164 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Calibrates x264 presets once per device and picks a preset for each crop.
+ * Every preset encodes a short generated clip from fastest to slowest, and calibration stops at the first one
+ * slower than real time, since slower presets are never chosen. The table is kept in preferences per device and binary.
+ * A preset is measured alone on an idle {@link CropQueue}, and measured again when foreground work shared the CPU with it.
+ * A crop picks its preset and threads for the encodes it runs beside.
+ */
+public class PresetCalibrator {
+    private static final String PREFERENCES = "presets";
+
+    // generated 720p clip of the calibration encode
+    public static final int CALIBRATION_WIDTH = 1280;
+    public static final int CALIBRATION_HEIGHT = 720;
+    public static final long CALIBRATION_US = 2000000;
+
+    // check interval while waiting for the queue to be idle
+    private static final long IDLE_POLL_MS = 1000;
+
+    private static PresetCalibrator sInstance;
+
+    // Components
+    private Context mContext;
+    private SharedPreferences mPreferences;
+    private ExecutorService mExecutor;
+
+    // Attributes
+    private final String mDeviceKey;
+    private final int mThreads;
+
+    // Working Variables
+    private volatile PresetTable mTable;		// null until calibrated
+
+    public static synchronized PresetCalibrator getInstance(Context context) {
+        if(sInstance == null) {
+            sInstance = new PresetCalibrator(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    // Constructors
+    private PresetCalibrator(Context context) {
+        mContext = context;
+        mPreferences = context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        mExecutor = Executors.newSingleThreadExecutor();
+        mThreads = Runtime.getRuntime().availableProcessors();
+
+        // a system update or a new binary changes the speed
+        mDeviceKey = Build.FINGERPRINT + "|" + FFmpegInstaller.getInstance(context).getBinaryName();
+        mTable = PresetTable.decode(mPreferences.getString(mDeviceKey, null));
+    }
+
+    // calibrate on the calibrator thread unless this device already has a table
+    // CropQueue queue: calibration waits for it to be idle, and jobs queued while a preset is measured wait stopped
+    public void calibrateAsync(final CropQueue queue) {
+        if(mTable != null) {
+            return;
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(mTable != null) {
+                    return;
+                }
+
+                try {
+                    PresetTable table = calibrate(queue);
+                    if(!table.isEmpty()) {
+                        mPreferences.edit().putString(mDeviceKey, table.encode()).apply();
+                        mTable = table;
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    // preset for a clip, null to keep x264 defaults until calibration is done
+    // int encodes: encodes running at once with this one, the target speed is scaled up and the threads divided by it
+    public EncodePreset getPreset(long durationUs, int encodes) {
+        PresetTable table = mTable;
+        encodes = Math.max(1, encodes);
+        return table != null ? table.choose(durationUs, Math.max(1, mThreads / encodes), encodes) : null;
+    }
+
+    private PresetTable calibrate(CropQueue queue) throws IOException, InterruptedException {
+        FFmpegRunner runner = new FFmpegRunner(FFmpegInstaller.getInstance(mContext).install());
+        PresetTable table = new PresetTable();
+
+        for(int i = 0; i < PresetTable.PRESETS.length; i++) {
+            awaitIdle(queue);
+
+            long encodeMs;
+            queue.beginPreemption();
+            int foregroundStarts = queue.getForegroundStarts();
+            try {
+                long startMs = SystemClock.uptimeMillis();
+                runner.execute(CropCommandBuilder.buildCalibration(CALIBRATION_WIDTH, CALIBRATION_HEIGHT, CALIBRATION_US,
+                        new EncodePreset(PresetTable.PRESETS[i], null, mThreads, 0)));
+                encodeMs = SystemClock.uptimeMillis() - startMs - runner.getSpawnMs();
+            } finally {
+                queue.endPreemption();
+            }
+
+            // a foreground crop, proxy or preview ran beside it, measure it again alone
+            if(queue.getForegroundStarts() != foregroundStarts) {
+                i--;
+                continue;
+            }
+
+            float speed = CALIBRATION_US / 1000f / Math.max(1, encodeMs);
+            table.setSpeed(i, speed);
+
+            if(speed < PresetTable.MIN_TARGET_SPEED) {
+                break;
+            }
+        }
+
+        return table;
+    }
+
+    private static void awaitIdle(CropQueue queue) throws InterruptedException {
+        while(!queue.isIdle()) {
+            Thread.sleep(IDLE_POLL_MS);
+        }
+    }
+}
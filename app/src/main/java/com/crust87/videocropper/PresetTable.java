@@ -0,0 +1,156 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * Measured encode speed of each x264 preset on this device, and the choice of a preset for a clip.
+ * Speed is encoded media seconds per wall clock second of the calibration encode.
+ *
+ * Stored as a line of preset:speed pairs, fastest first:
+ * <pre>
+ * ultrafast:6.10,superfast:4.20,veryfast:2.95
+ * </pre>
+ */
+public class PresetTable {
+    // fastest to slowest, slower ones compress better at the same bitrate
+    public static final String[] PRESETS = {"ultrafast", "superfast", "veryfast", "faster", "fast", "medium"};
+
+    // a clip is encoded at least in real time, and a long one in at most this long
+    public static final float MIN_TARGET_SPEED = 1.0f;
+    public static final long MAX_ENCODE_US = 5 * 60 * 1000000L;
+
+    // with this much speed to spare at the slowest preset, encode for quality
+    public static final float QUALITY_HEADROOM = 2.0f;
+    public static final int QUALITY_CRF = 21;
+
+    // when even the fastest preset is too slow
+    public static final String FALLBACK_TUNE = "zerolatency";
+
+    // Attributes
+    private final float[] mSpeeds;		// 0 for presets not measured
+
+    // Constructors
+    public PresetTable() {
+        mSpeeds = new float[PRESETS.length];
+    }
+
+    public void setSpeed(int preset, float speed) {
+        mSpeeds[preset] = speed;
+    }
+
+    public float getSpeed(int preset) {
+        return mSpeeds[preset];
+    }
+
+    public boolean isEmpty() {
+        for(float speed: mSpeeds) {
+            if(speed > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // speed needed to finish the clip in time
+    public static float getTargetSpeed(long durationUs) {
+        return Math.max(MIN_TARGET_SPEED, durationUs / (float) MAX_ENCODE_US);
+    }
+
+    // slowest measured preset that still meets the target, null when nothing was measured
+    // int threads: encoder threads, 0 lets x264 decide
+    public EncodePreset choose(long durationUs, int threads) {
+        return choose(durationUs, threads, 1);
+    }
+
+    // int encodes: encodes sharing the CPU, each runs at about that share of the speed measured alone
+    public EncodePreset choose(long durationUs, int threads, int encodes) {
+        float targetSpeed = getTargetSpeed(durationUs) * Math.max(1, encodes);
+
+        for(int i = PRESETS.length - 1; i >= 0; i--) {
+            if(mSpeeds[i] >= targetSpeed) {
+                // the slowest preset with time to spare, spend it on quality
+                boolean quality = i == PRESETS.length - 1 && mSpeeds[i] >= targetSpeed * QUALITY_HEADROOM;
+                return new EncodePreset(PRESETS[i], null, threads, quality ? QUALITY_CRF : 0);
+            }
+        }
+
+        if(isEmpty()) {
+            return null;
+        }
+
+        return new EncodePreset(PRESETS[0], FALLBACK_TUNE, threads, 0);
+    }
+
+    public String encode() {
+        StringBuilder line = new StringBuilder(128);
+        for(int i = 0; i < PRESETS.length; i++) {
+            if(mSpeeds[i] > 0) {
+                if(line.length() > 0) {
+                    line.append(',');
+                }
+                line.append(PRESETS[i]).append(':').append(mSpeeds[i]);
+            }
+        }
+
+        return line.toString();
+    }
+
+    // return null when the line is missing or broken
+    public static PresetTable decode(String line) {
+        if(line == null || line.isEmpty()) {
+            return null;
+        }
+
+        PresetTable table = new PresetTable();
+        for(String pair: line.split(",")) {
+            int separator = pair.indexOf(':');
+            if(separator < 0) {
+                return null;
+            }
+
+            int preset = indexOf(pair.substring(0, separator));
+            if(preset < 0) {
+                return null;
+            }
+
+            try {
+                table.mSpeeds[preset] = Float.parseFloat(pair.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return table;
+    }
+
+    private static int indexOf(String preset) {
+        for(int i = 0; i < PRESETS.length; i++) {
+            if(PRESETS[i].equals(preset)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
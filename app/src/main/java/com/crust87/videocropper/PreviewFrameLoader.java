@@ -0,0 +1,185 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Frame accurate stills of the crop window, cropped and scaled by ffmpeg in one run.
+ * Frames are read from the pipe as raw RGBA straight into reused bitmaps, without temp files or image decoding.
+ * Bitmaps are double buffered, the ones last reported stay untouched until the next load is reported.
+ * The user waits for the preview, so background crops are stopped while it runs.
+ */
+public class PreviewFrameLoader {
+    private static final String TAG = "PreviewFrameLoader";
+
+    // Components
+    private final CropQueue mQueue;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler;
+    private Future<?> mTask;
+    private volatile FFmpegRunner mRunner;		// running preview
+
+    // Working Variables, used on the loader thread only
+    private Bitmap[] mFrontFrames;		// last reported
+    private Bitmap[] mBackFrames;		// filled by the running load
+    private byte[] mPixels;
+    private ByteBuffer mPixelBuffer;
+
+    // Constructors
+    public PreviewFrameLoader(CropQueue queue) {
+        mQueue = queue;
+        mExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    // load count stills spread over the range of the builder, previous load is cancelled
+    // int longSide: long side of a still, the short side follows the crop
+    public void load(CropCommandBuilder builder, final int count, int longSide, final OnPreviewReadyListener onPreviewReadyListener) {
+        cancel();
+
+        // the builder isn't thread safe, so the command is made here
+        final int width = builder.getScaledWidth(longSide);
+        final int height = builder.getScaledHeight(longSide);
+        final List<String> commands = builder.buildPreviewFrames(count, width, height);
+
+        mTask = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long startMs = SystemClock.uptimeMillis();
+                final Bitmap[] frames = prepareFrames(count, width, height);
+                final int loaded = read(commands, frames, width, height);
+                if(loaded <= 0 || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                mBackFrames = mFrontFrames;
+                mFrontFrames = frames;
+                Log.d(TAG, loaded + " frames of " + width + "x" + height + " in " + (SystemClock.uptimeMillis() - startMs) + "ms");
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPreviewReadyListener.onPreviewReady(frames, loaded);
+                    }
+                });
+            }
+        });
+    }
+
+    public void cancel() {
+        if(mTask != null) {
+            mTask.cancel(true);
+            mTask = null;
+        }
+
+        // interrupt doesn't reach the process
+        FFmpegRunner runner = mRunner;
+        if(runner != null) {
+            runner.destroy();
+        }
+    }
+
+    public void release() {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+
+    // back buffer bitmaps of the size, made again only when count or size changes
+    private Bitmap[] prepareFrames(int count, int width, int height) {
+        Bitmap[] frames = mBackFrames;
+        if(frames == null || frames.length != count || frames[0].getWidth() != width || frames[0].getHeight() != height) {
+            frames = new Bitmap[count];
+            for(int i = 0; i < count; i++) {
+                frames[i] = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            }
+        }
+
+        if(mPixels == null || mPixels.length != width * height * 4) {
+            mPixels = new byte[width * height * 4];
+            mPixelBuffer = ByteBuffer.wrap(mPixels);
+        }
+
+        return frames;
+    }
+
+    // run the preview and fill frames in order, returns the number filled or -1 on failure
+    // a range running past the end of the source gives fewer frames
+    private int read(List<String> commands, final Bitmap[] frames, int width, int height) {
+        final int[] loaded = new int[1];
+
+        mQueue.beginPreemption();
+        try {
+            FFmpegRunner runner = mQueue.newRunner();
+            runner.setNice(CropJob.PRIORITY_FOREGROUND);
+            mRunner = runner;
+            if(Thread.currentThread().isInterrupted()) {
+                return -1;
+            }
+
+            runner.execute(commands, new FFmpegRunner.OnReadProcessOutputListener() {
+                @Override
+                public void onReadProcessOutput(InputStream output) throws IOException {
+                    DataInputStream input = new DataInputStream(output);
+                    try {
+                        while(loaded[0] < frames.length) {
+                            input.readFully(mPixels);
+                            mPixelBuffer.rewind();
+                            frames[loaded[0]].copyPixelsFromBuffer(mPixelBuffer);
+                            loaded[0]++;
+                        }
+                    } catch (EOFException e) {
+                        // source ended before the last still
+                    }
+                }
+            });
+
+            return loaded[0];
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        } finally {
+            mRunner = null;
+            mQueue.endPreemption();
+        }
+    }
+
+    public interface OnPreviewReadyListener {
+        // Bitmap[] frames: stills in time order, only the first count are filled
+        void onPreviewReady(Bitmap[] frames, int count);
+    }
+}
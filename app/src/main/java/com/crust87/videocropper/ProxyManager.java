@@ -0,0 +1,207 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Low resolution preview copies of large sources.
+ * A proxy is a 640px, short GOP encode that seeks and scrubs smoothly, while crops still read the original.
+ * Proxies are kept under a disk budget, least recently used first out, and expire after a week.
+ * The user waits for a proxy, so background crops are stopped while one is encoded.
+ */
+public class ProxyManager {
+    public static final String PROXY_DIR = "proxies";
+
+    // sources above this many pixels get a proxy
+    public static final int PROXY_MIN_PIXELS = 1280 * 720;
+
+    private static final int PROXY_LONG_SIDE = 640;
+    private static final int PROXY_GOP_SIZE = 10;
+    private static final long DISK_BUDGET_BYTES = 512L * 1024 * 1024;
+    private static final long MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final long MIN_FREE_BYTES = 200L * 1024 * 1024;
+    private static final String PART_SUFFIX = ".part";
+
+    // Components
+    private final CropQueue mQueue;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler;
+    private Future<?> mTask;
+    private volatile FFmpegRunner mRunner;		// running proxy encode
+
+    // Attributes
+    private final File mProxyDir;
+
+    // Constructors
+    public ProxyManager(Context context, CropQueue queue) {
+        mQueue = queue;
+        mExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mProxyDir = new File(context.getApplicationContext().getCacheDir(), PROXY_DIR);
+
+        // drop expired and unfinished proxies
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                trim();
+            }
+        });
+    }
+
+    public static boolean needsProxy(int videoWidth, int videoHeight) {
+        return videoWidth * videoHeight > PROXY_MIN_PIXELS;
+    }
+
+    // finished proxy of the source, or null
+    public File getProxy(String originalPath) {
+        File proxy = getProxyFile(originalPath);
+        if(proxy.length() > 0) {
+            CacheFiles.touch(proxy);
+            return proxy;
+        }
+
+        return null;
+    }
+
+    // encode the proxy in the background, a previous request not started or running is cancelled
+    public void createProxy(final String originalPath, final OnProxyReadyListener onProxyReadyListener) {
+        cancel();
+
+        mTask = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final File proxy = encode(originalPath);
+                if(proxy != null && !Thread.currentThread().isInterrupted()) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onProxyReadyListener.onProxyReady(originalPath, proxy);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    public void cancel() {
+        if(mTask != null) {
+            mTask.cancel(true);
+            mTask = null;
+        }
+
+        // interrupt doesn't reach the process
+        FFmpegRunner runner = mRunner;
+        if(runner != null) {
+            runner.destroy();
+        }
+    }
+
+    public void release() {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+
+    private File encode(String originalPath) {
+        File proxy = getProxyFile(originalPath);
+        if(proxy.length() > 0) {
+            return proxy;
+        }
+
+        if(!mProxyDir.isDirectory() && !mProxyDir.mkdirs()) {
+            return null;
+        }
+
+        if(mProxyDir.getUsableSpace() < MIN_FREE_BYTES) {
+            return null;
+        }
+
+        // encoded to a part file, so an interrupted encode is never taken for a proxy
+        File part = new File(proxy.getPath() + PART_SUFFIX);
+        mQueue.beginPreemption();
+        try {
+            FFmpegRunner runner = mQueue.newRunner();
+            runner.setNice(CropJob.PRIORITY_FOREGROUND);
+            mRunner = runner;
+            if(Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+
+            runner.execute(CropCommandBuilder.buildProxy(originalPath, part.getAbsolutePath(), PROXY_LONG_SIDE, PROXY_GOP_SIZE,
+                    VideoProbe.getAudioMime(originalPath)));
+
+            if(part.length() > 0 && part.renameTo(proxy)) {
+                trim();
+                return proxy;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            mRunner = null;
+            mQueue.endPreemption();
+            part.delete();
+        }
+
+        return null;
+    }
+
+    // delete unfinished and expired proxies, then least recently used ones over the budget
+    // runs on the proxy thread, so no part file is being written
+    private void trim() {
+        File[] files = mProxyDir.listFiles();
+        if(files == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for(int i = 0; i < files.length; i++) {
+            if(files[i].getName().endsWith(PART_SUFFIX) || now - files[i].lastModified() > MAX_AGE_MS) {
+                files[i].delete();
+                files[i] = null;
+            }
+        }
+
+        // the newest file is the one just added, it stays
+        CacheFiles.trim(files, CacheFiles.getTotalBytes(files), DISK_BUDGET_BYTES, true);
+    }
+
+    // proxy name follows the source path, size and modified time, so an edited source gets a new proxy
+    private File getProxyFile(String originalPath) {
+        File original = new File(originalPath);
+        String key = VideoSource.getStableKey(originalPath) + '@' + original.length() + '@' + original.lastModified();
+
+        return new File(mProxyDir, CacheFiles.hash(key) + ".mp4");
+    }
+
+    public interface OnProxyReadyListener {
+        void onProxyReady(String originalPath, File proxy);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, non-overlapping time ranges of an edit list, in microseconds.
+ * Starts and ends are kept in primitive arrays, so hit tests are binary searches that can run on every touch event.
+ * Overlapping or touching ranges are merged when added.
+ * Plain Java without Android dependencies, so it can be unit tested and benchmarked on a desktop JVM.
+ */
+public class RangeList {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    // Attributes
+    private long[] mStartsUs;
+    private long[] mEndsUs;
+    private int mSize;
+
+    // Constructors
+    public RangeList() {
+        mStartsUs = new long[DEFAULT_CAPACITY];
+        mEndsUs = new long[DEFAULT_CAPACITY];
+    }
+
+    public RangeList(RangeList ranges) {
+        mStartsUs = Arrays.copyOf(ranges.mStartsUs, Math.max(ranges.mSize, DEFAULT_CAPACITY));
+        mEndsUs = Arrays.copyOf(ranges.mEndsUs, mStartsUs.length);
+        mSize = ranges.mSize;
+    }
+
+    // add [startUs, endUs), merged with the ranges it overlaps or touches
+    // returns index of the range holding it
+    public int add(long startUs, long endUs) {
+        if(endUs <= startUs) {
+            throw new IllegalArgumentException("empty range: " + startUs + "us to " + endUs + "us");
+        }
+
+        // first range ending at or after the start and first range starting after the end
+        int first = firstEndingAfter(startUs - 1);
+        int last = first;
+        while(last < mSize && mStartsUs[last] <= endUs) {
+            last++;
+        }
+
+        if(first < last) {
+            startUs = Math.min(startUs, mStartsUs[first]);
+            endUs = Math.max(endUs, mEndsUs[last - 1]);
+        }
+
+        int removed = last - first;
+        if(removed == 0) {
+            ensureCapacity(mSize + 1);
+        }
+
+        // shift the tail so exactly one slot is left at first
+        int shift = 1 - removed;
+        if(shift != 0) {
+            System.arraycopy(mStartsUs, last, mStartsUs, last + shift, mSize - last);
+            System.arraycopy(mEndsUs, last, mEndsUs, last + shift, mSize - last);
+            mSize += shift;
+        }
+
+        mStartsUs[first] = startUs;
+        mEndsUs[first] = endUs;
+
+        return first;
+    }
+
+    public void remove(int index) {
+        if(index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+
+        System.arraycopy(mStartsUs, index + 1, mStartsUs, index, mSize - index - 1);
+        System.arraycopy(mEndsUs, index + 1, mEndsUs, index, mSize - index - 1);
+        mSize--;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public long getStartUs(int index) {
+        return mStartsUs[index];
+    }
+
+    public long getEndUs(int index) {
+        return mEndsUs[index];
+    }
+
+    // index of the range holding timeUs, -1 when it's in a gap
+    public int indexOf(long timeUs) {
+        int index = Arrays.binarySearch(mStartsUs, 0, mSize, timeUs);
+        if(index < 0) {
+            // last range starting before timeUs
+            index = -index - 2;
+        }
+
+        return index >= 0 && timeUs < mEndsUs[index] ? index : -1;
+    }
+
+    // index of the first range ending after timeUs, size when there is none
+    // ends are sorted as well, so this is where drawing of a visible window starts
+    public int firstEndingAfter(long timeUs) {
+        int index = Arrays.binarySearch(mEndsUs, 0, mSize, timeUs);
+
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // length of the joined ranges
+    public long getDurationUs() {
+        long durationUs = 0;
+        for(int i = 0; i < mSize; i++) {
+            durationUs += mEndsUs[i] - mStartsUs[i];
+        }
+
+        return durationUs;
+    }
+
+    // source time of a time in the joined ranges, the end of the last range past the end
+    public long getSourceTimeUs(long editUs) {
+        for(int i = 0; i < mSize; i++) {
+            long durationUs = mEndsUs[i] - mStartsUs[i];
+            if(editUs < durationUs) {
+                return mStartsUs[i] + editUs;
+            }
+            editUs -= durationUs;
+        }
+
+        return mSize > 0 ? mEndsUs[mSize - 1] : 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > mStartsUs.length) {
+            int length = Math.max(capacity, mStartsUs.length * 2);
+            mStartsUs = Arrays.copyOf(mStartsUs, length);
+            mEndsUs = Arrays.copyOf(mEndsUs, length);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * One output size of a rendition ladder.
+ * All renditions of a job share one decode and crop, see {@link CropCommandBuilder#addRendition(Rendition)}.
+ */
+public class Rendition {
+    // Attributes
+    private final String mOutputPath;
+    private final int mLongSide;
+    private final String mBitrate;
+    private final String mProfile;
+    private final String mLevel;
+
+    // Constructors
+    // int longSide: long side of the output frame, the short side follows the crop ratio
+    // String bitrate: video bitrate, "1000k"
+    // String profile, level: H.264 profile and level, "baseline", "3.1"
+    public Rendition(String outputPath, int longSide, String bitrate, String profile, String level) {
+        mOutputPath = outputPath;
+        mLongSide = longSide;
+        mBitrate = bitrate;
+        mProfile = profile;
+        mLevel = level;
+    }
+
+    public String getOutputPath() {
+        return mOutputPath;
+    }
+
+    public int getLongSide() {
+        return mLongSide;
+    }
+
+    public String getBitrate() {
+        return mBitrate;
+    }
+
+    public String getProfile() {
+        return mProfile;
+    }
+
+    public String getLevel() {
+        return mLevel;
+    }
+}
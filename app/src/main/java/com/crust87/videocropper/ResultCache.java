@@ -0,0 +1,217 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Disk cache of finished crop outputs, addressed by source fingerprint and job parameters.
+ * A job that was already encoded gets its outputs copied from the cache instead of running ffmpeg.
+ * Entries are bounded by total size, least recently used first out.
+ */
+public class ResultCache {
+    public static final String DISK_DIR = "results";
+    public static final long DISK_MAX_BYTES = 256 * 1024 * 1024;
+
+    // bytes hashed from each end of the source for the fingerprint
+    private static final int PARTIAL_HASH_BYTES = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+
+    // Components
+    private final File mDiskDir;
+
+    // Attributes
+    private final long mDiskMaxBytes;
+
+    // Working Variables
+    private long mDiskBytes;		// -1 until the directory is measured
+    private final AtomicInteger mHitCount;
+    private final AtomicInteger mMissCount;
+
+    // Constructors
+    public ResultCache(File diskDir, long diskMaxBytes) {
+        mDiskDir = diskDir;
+        mDiskMaxBytes = diskMaxBytes;
+        mDiskBytes = -1;
+        mHitCount = new AtomicInteger();
+        mMissCount = new AtomicInteger();
+    }
+
+    // source fingerprint and normalized job parameters, call before the job changes its builder
+    // int flags: CropJob flags, only smart cut changes the output, segmented and extracted audio encodes give the same file
+    // the input is named by its content only, a descriptor input has another path in every run of the app
+    public static String getKey(CropCommandBuilder builder, int flags) throws IOException {
+        return getFingerprint(new File(builder.getInput())) + '|' + builder.getParameterKey() + '|' + (flags & CropJob.FLAG_SMART_CUT);
+    }
+
+    // size, modified time and a hash of both ends of the file
+    // an edited file changes size or time, the hash catches a file replaced with the same size and time
+    public static String getFingerprint(File source) throws IOException {
+        long length = source.length();
+        if(length == 0) {
+            throw new IOException("no source " + source);
+        }
+
+        MessageDigest digest = CacheFiles.newDigest();
+        byte[] buffer = new byte[(int) Math.min(PARTIAL_HASH_BYTES, length)];
+
+        RandomAccessFile file = new RandomAccessFile(source, "r");
+        try {
+            file.readFully(buffer);
+            digest.update(buffer);
+
+            if(length > PARTIAL_HASH_BYTES) {
+                file.seek(Math.max(PARTIAL_HASH_BYTES, length - PARTIAL_HASH_BYTES));
+                int read = (int) (length - file.getFilePointer());
+                file.readFully(buffer, 0, read);
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            file.close();
+        }
+
+        return length + "@" + source.lastModified() + '@' + CacheFiles.toHex(digest.digest());
+    }
+
+    // copy cached outputs of the key to the given paths, false when any of them is missing
+    // do not call on main thread
+    public boolean restore(String key, List<String> outputs) {
+        File[] entries = new File[outputs.size()];
+        for(int i = 0; i < entries.length; i++) {
+            entries[i] = getDiskFile(key, i);
+            if(!entries[i].isFile()) {
+                mMissCount.incrementAndGet();
+                return false;
+            }
+        }
+
+        try {
+            for(int i = 0; i < entries.length; i++) {
+                copy(entries[i], new File(outputs.get(i)));
+
+                CacheFiles.touch(entries[i]);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            mMissCount.incrementAndGet();
+            return false;
+        }
+
+        mHitCount.incrementAndGet();
+        return true;
+    }
+
+    // keep a copy of finished outputs, do not call on main thread
+    public void store(String key, List<String> outputs) {
+        synchronized(this) {
+            if(!mDiskDir.isDirectory() && !mDiskDir.mkdirs()) {
+                return;
+            }
+
+            if(mDiskBytes < 0) {
+                mDiskBytes = measureDisk();
+            }
+
+            for(int i = 0; i < outputs.size(); i++) {
+                File file = getDiskFile(key, i);
+                long previous = file.length();
+                try {
+                    copy(new File(outputs.get(i)), file);
+                    mDiskBytes += file.length() - previous;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            if(mDiskBytes > mDiskMaxBytes) {
+                trimDisk();
+            }
+        }
+    }
+
+    public int getHitCount() {
+        return mHitCount.get();
+    }
+
+    public int getMissCount() {
+        return mMissCount.get();
+    }
+
+    // delete least recently used files down to 90% of the limit
+    private void trimDisk() {
+        File[] files = mDiskDir.listFiles();
+        if(files == null) {
+            return;
+        }
+
+        mDiskBytes = CacheFiles.trim(files, mDiskBytes, mDiskMaxBytes / 10 * 9, false);
+    }
+
+    private long measureDisk() {
+        File[] files = mDiskDir.listFiles();
+
+        return files != null ? CacheFiles.getTotalBytes(files) : 0;
+    }
+
+    // int index: output index of a rendition ladder, 0 for a single output
+    private File getDiskFile(String key, int index) {
+        return new File(mDiskDir, CacheFiles.hash(key + '#' + index) + ".mp4");
+    }
+
+    // copied to a part file and renamed, so a reader never sees half a file
+    private static void copy(File from, File to) throws IOException {
+        File part = new File(to.getPath() + PART_SUFFIX);
+
+        FileInputStream in = new FileInputStream(from);
+        try {
+            FileOutputStream out = new FileOutputStream(part);
+            try {
+                FileChannel source = in.getChannel();
+                FileChannel target = out.getChannel();
+                long size = source.size();
+                long position = 0;
+                while(position < size) {
+                    position += source.transferTo(position, size - position, target);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+
+        to.delete();
+        if(!part.renameTo(to)) {
+            part.delete();
+            throw new IOException("can't rename " + part);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Checkpoint of a segmented encode.
+ * Holds the chunk boundaries of a job and which chunks are already encoded, so an interrupted job redoes only missing chunks.
+ *
+ * File format, the key on first line and a chunk per line:
+ * <pre>
+ * key=/sdcard/video.mp4|crop=...|12000000|60000000
+ * 12000000 22033000 1
+ * 22033000 32066000 0
+ * </pre>
+ */
+public class SegmentManifest {
+    private static final String KEY_PREFIX = "key=";
+
+    // Attributes
+    private final String mKey;
+    private final long[] mBoundaries;		// chunk i is [mBoundaries[i], mBoundaries[i + 1])
+    private final boolean[] mDone;
+
+    // Constructors
+    public SegmentManifest(String key, long[] boundaries) {
+        if(boundaries.length < 2) {
+            throw new IllegalArgumentException("need at least one chunk");
+        }
+
+        mKey = key;
+        mBoundaries = boundaries;
+        mDone = new boolean[boundaries.length - 1];
+    }
+
+    public String getKey() {
+        return mKey;
+    }
+
+    public int getChunkCount() {
+        return mDone.length;
+    }
+
+    public long getChunkStartUs(int chunk) {
+        return mBoundaries[chunk];
+    }
+
+    public long getChunkEndUs(int chunk) {
+        return mBoundaries[chunk + 1];
+    }
+
+    public synchronized boolean isDone(int chunk) {
+        return mDone[chunk];
+    }
+
+    public synchronized void setDone(int chunk, boolean done) {
+        mDone[chunk] = done;
+    }
+
+    public synchronized boolean isComplete() {
+        for(boolean done: mDone) {
+            if(!done) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // length of encoded chunks
+    public synchronized long getDoneUs() {
+        long doneUs = 0;
+        for(int i = 0; i < mDone.length; i++) {
+            if(mDone[i]) {
+                doneUs += mBoundaries[i + 1] - mBoundaries[i];
+            }
+        }
+
+        return doneUs;
+    }
+
+    // write to a temporary file and rename it, so a kill never leaves a half written manifest
+    public synchronized void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+
+        FileWriter writer = new FileWriter(temp);
+        try {
+            writer.write(KEY_PREFIX);
+            writer.write(mKey);
+            writer.write('\n');
+
+            for(int i = 0; i < mDone.length; i++) {
+                writer.write(mBoundaries[i] + " " + mBoundaries[i + 1] + " " + (mDone[i] ? 1 : 0) + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+
+        if(!temp.renameTo(file)) {
+            throw new IOException("can't write " + file);
+        }
+    }
+
+    // return null when there is no manifest or it can't be parsed
+    public static SegmentManifest read(File file) {
+        if(!file.exists()) {
+            return null;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(file));
+
+            String keyLine = reader.readLine();
+            if(keyLine == null || !keyLine.startsWith(KEY_PREFIX)) {
+                return null;
+            }
+
+            long[] boundaries = new long[16];
+            boolean[] done = new boolean[15];
+            int count = 0;
+
+            String line;
+            while((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ");
+                if(fields.length != 3) {
+                    return null;
+                }
+
+                if(count + 2 > boundaries.length) {
+                    long[] nextBoundaries = new long[boundaries.length * 2];
+                    System.arraycopy(boundaries, 0, nextBoundaries, 0, boundaries.length);
+                    boundaries = nextBoundaries;
+
+                    boolean[] nextDone = new boolean[done.length * 2 + 1];
+                    System.arraycopy(done, 0, nextDone, 0, done.length);
+                    done = nextDone;
+                }
+
+                long start = Long.parseLong(fields[0]);
+                if(count > 0 && boundaries[count] != start) {
+                    return null;
+                }
+
+                boundaries[count] = start;
+                boundaries[count + 1] = Long.parseLong(fields[1]);
+                done[count] = "1".equals(fields[2]);
+                count++;
+            }
+
+            if(count == 0) {
+                return null;
+            }
+
+            long[] chunkBoundaries = new long[count + 1];
+            System.arraycopy(boundaries, 0, chunkBoundaries, 0, count + 1);
+
+            SegmentManifest manifest = new SegmentManifest(keyLine.substring(KEY_PREFIX.length()), chunkBoundaries);
+            System.arraycopy(done, 0, manifest.mDone, 0, count);
+
+            return manifest;
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        } finally {
+            if(reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
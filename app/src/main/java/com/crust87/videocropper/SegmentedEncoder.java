@@ -0,0 +1,262 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes a crop job as key frame aligned chunks and joins them with the concat demuxer.
+ * A manifest in the work directory records finished chunks, so running the same job again after
+ * a failure or a process kill encodes only the chunks that are missing.
+ */
+public class SegmentedEncoder {
+    // target chunk length, chunks end on the first key frame after it
+    public static final long CHUNK_US = 10000000;
+
+    private static final String MANIFEST_NAME = "manifest.txt";
+    private static final String LIST_NAME = "list.txt";
+
+    // Components
+    private final CropQueue mQueue;
+    private final CropJob mJob;
+    private final CropCommandBuilder mBuilder;
+
+    // Event Listener
+    private OnChunkDoneListener mOnChunkDoneListener;
+
+    // Attributes
+    private final String mKey;			// the job and its source's content, names the work directory
+    private final File mWorkDir;
+    private final int mParallelism;
+
+    // Constructors
+    // File baseDir: chunks and manifest go to a directory per job under it
+    // int parallelism: chunks encoding at the same time, no more than the encodes the queue has room for
+    public SegmentedEncoder(CropQueue queue, CropJob job, File baseDir, int parallelism) {
+        mQueue = queue;
+        mJob = job;
+        mBuilder = job.getBuilder();
+        mKey = getKey(job);
+        mWorkDir = new File(baseDir, CacheFiles.hash(mKey));
+        mParallelism = Math.max(1, parallelism);
+    }
+
+    public void encode() throws IOException {
+        if(!mWorkDir.isDirectory() && !mWorkDir.mkdirs()) {
+            throw new IOException("can't create " + mWorkDir);
+        }
+
+        final File manifestFile = new File(mWorkDir, MANIFEST_NAME);
+        final SegmentManifest manifest = loadManifest(manifestFile);
+
+        ExecutorService pool = Executors.newFixedThreadPool(mParallelism);
+        try {
+            for(int i = 0; i < manifest.getChunkCount(); i++) {
+                if(manifest.isDone(i)) {
+                    continue;
+                }
+
+                final int chunk = i;
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            encodeChunk(manifest, chunk);
+                            manifest.write(manifestFile);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            while(!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // wait for running chunks
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        }
+
+        if(!manifest.isComplete()) {
+            throw new IOException("chunk encode failed, " + (manifest.getChunkCount() - countDone(manifest)) + " chunks left in " + mWorkDir);
+        }
+
+        join(manifest);
+        delete();
+    }
+
+    // remove chunks and manifest of this job
+    public void delete() {
+        File[] files = mWorkDir.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+        mWorkDir.delete();
+    }
+
+    // the key of the result cache, which names the source by its content, so a descriptor source finds its chunks after a restart
+    // the input path when the source can't be fingerprinted, chunks of a pipe can't be resumed anyway
+    private static String getKey(CropJob job) {
+        try {
+            return ResultCache.getKey(job.getBuilder(), job.getFlags());
+        } catch (IOException e) {
+            return job.getBuilder().getJobKey();
+        }
+    }
+
+    // resume manifest of the same job, or plan new chunks
+    private SegmentManifest loadManifest(File manifestFile) throws IOException {
+        SegmentManifest manifest = SegmentManifest.read(manifestFile);
+        if(manifest == null || !mKey.equals(manifest.getKey())) {
+            manifest = new SegmentManifest(mKey, planChunks());
+        }
+
+        // chunk files can be removed while the manifest remains
+        for(int i = 0; i < manifest.getChunkCount(); i++) {
+            if(manifest.isDone(i) && getChunkFile(i).length() == 0) {
+                manifest.setDone(i, false);
+            }
+        }
+
+        manifest.write(manifestFile);
+
+        return manifest;
+    }
+
+    // chunk boundaries on key frames, so every chunk starts with an input seek that needs no decode lead-in
+    // a boundary is the first key frame at or after every chunk length from the start
+    private long[] planChunks() {
+        long startUs = mBuilder.getSeekUs();
+        long endUs = startUs + mBuilder.getDurationUs();
+
+        long[] targetsUs = new long[(int) (mBuilder.getDurationUs() / CHUNK_US)];
+        for(int i = 0; i < targetsUs.length; i++) {
+            targetsUs[i] = startUs + (i + 1) * CHUNK_US;
+        }
+
+        long[] boundaries = new long[targetsUs.length + 2];
+        int count = 0;
+        boundaries[count++] = startUs;
+
+        for(long syncUs: getSyncTimes(targetsUs)) {
+            // sparse key frames give several targets the same one
+            if(syncUs > boundaries[count - 1] && syncUs < endUs) {
+                boundaries[count++] = syncUs;
+            }
+        }
+
+        boundaries[count++] = endUs;
+
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    // from the job's key frame index, or from one extractor for all targets when the source wasn't probed
+    private long[] getSyncTimes(long[] timesUs) {
+        KeyframeIndex keyframes = mBuilder.getKeyframes();
+        if(keyframes == null) {
+            return VideoProbe.getSyncTimes(mBuilder.getInput(), timesUs, true);
+        }
+
+        long[] syncTimesUs = new long[timesUs.length];
+        for(int i = 0; i < timesUs.length; i++) {
+            syncTimesUs[i] = keyframes.ceiling(timesUs[i]);
+        }
+
+        return syncTimesUs;
+    }
+
+    private void encodeChunk(SegmentManifest manifest, int chunk) throws IOException {
+        File chunkFile = getChunkFile(chunk);
+        List<String> commands = mBuilder.buildSegment(manifest.getChunkStartUs(chunk), manifest.getChunkEndUs(chunk), chunkFile.getAbsolutePath(), false);
+
+        mQueue.execute(mJob, commands);
+
+        if(chunkFile.length() == 0) {
+            throw new IOException("chunk " + chunk + " has no output");
+        }
+
+        manifest.setDone(chunk, true);
+
+        if(mOnChunkDoneListener != null) {
+            mOnChunkDoneListener.onChunkDone(manifest.getDoneUs());
+        }
+    }
+
+    private void join(SegmentManifest manifest) throws IOException {
+        File list = new File(mWorkDir, LIST_NAME);
+
+        FileWriter writer = new FileWriter(list);
+        try {
+            for(int i = 0; i < manifest.getChunkCount(); i++) {
+                writer.write("file '" + getChunkFile(i).getAbsolutePath() + "'\n");
+            }
+        } finally {
+            writer.close();
+        }
+
+        mQueue.executeOutput(mJob, mBuilder.buildConcat(list.getAbsolutePath()));
+
+        if(mJob.hasFileOutput() && new File(mBuilder.getOutput()).length() == 0) {
+            throw new IOException("concat has no output");
+        }
+    }
+
+    private File getChunkFile(int chunk) {
+        return new File(mWorkDir, "chunk_" + chunk + ".ts");
+    }
+
+    private static int countDone(SegmentManifest manifest) {
+        int done = 0;
+        for(int i = 0; i < manifest.getChunkCount(); i++) {
+            if(manifest.isDone(i)) {
+                done++;
+            }
+        }
+
+        return done;
+    }
+
+    // listener is called on chunk worker threads
+    public void setOnChunkDoneListener(OnChunkDoneListener onChunkDoneListener) {
+        mOnChunkDoneListener = onChunkDoneListener;
+    }
+
+    public interface OnChunkDoneListener {
+        void onChunkDone(long doneUs);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Two level cache of video thumbnails.
+ * Keys are made of path, modified time, timestamp, decode option and size, so an edited file never hits old frames,
+ * and a key frame decoded near a time never stands in for the exact frame at it.
+ * Memory is an LRU bounded by bitmap bytes, disk is JPEG files under the cache directory bounded by total size.
+ */
+public class ThumbnailCache {
+    private static final String DISK_DIR = "thumbnails";
+    private static final long DISK_MAX_BYTES = 32 * 1024 * 1024;
+    private static final int JPEG_QUALITY = 80;
+
+    private static ThumbnailCache sInstance;
+
+    // Components
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final File mDiskDir;
+
+    // Attributes
+    private final long mDiskMaxBytes;
+
+    // Working Variables
+    private long mDiskBytes;		// -1 until the directory is measured
+
+    public static synchronized ThumbnailCache getInstance(Context context) {
+        if(sInstance == null) {
+            // an eighth of the heap for thumbnails
+            int memoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+            sInstance = new ThumbnailCache(new File(context.getApplicationContext().getCacheDir(), DISK_DIR), memoryBytes, DISK_MAX_BYTES);
+        }
+
+        return sInstance;
+    }
+
+    // Constructors
+    public ThumbnailCache(File diskDir, int memoryMaxBytes, long diskMaxBytes) {
+        mMemoryCache = new LruCache<String, Bitmap>(memoryMaxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        mDiskDir = diskDir;
+        mDiskMaxBytes = diskMaxBytes;
+        mDiskBytes = -1;
+    }
+
+    // int option: MediaMetadataRetriever option the frame is decoded with
+    public static String getKey(String path, long modified, long timeUs, int option, int width, int height) {
+        return VideoSource.getStableKey(path) + '@' + modified + '@' + timeUs + '@' + option + '@' + width + 'x' + height;
+    }
+
+    // memory only, safe to call while drawing
+    public Bitmap getFromMemory(String key) {
+        return mMemoryCache.get(key);
+    }
+
+    // memory, then disk, do not call on main thread
+    public Bitmap get(String key) {
+        Bitmap bitmap = mMemoryCache.get(key);
+        if(bitmap != null) {
+            return bitmap;
+        }
+
+        File file = getDiskFile(key);
+        if(!file.exists()) {
+            return null;
+        }
+
+        bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
+        if(bitmap != null) {
+            mMemoryCache.put(key, bitmap);
+
+            CacheFiles.touch(file);
+        }
+
+        return bitmap;
+    }
+
+    // put to memory and disk, do not call on main thread
+    public void put(String key, Bitmap bitmap) {
+        mMemoryCache.put(key, bitmap);
+
+        File file = getDiskFile(key);
+        File temp = new File(file.getPath() + ".tmp");
+
+        synchronized(this) {
+            if(!mDiskDir.isDirectory() && !mDiskDir.mkdirs()) {
+                return;
+            }
+
+            FileOutputStream output = null;
+            try {
+                output = new FileOutputStream(temp);
+                bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, output);
+            } catch (IOException e) {
+                e.printStackTrace();
+                temp.delete();
+                return;
+            } finally {
+                if(output != null) {
+                    try {
+                        output.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            long previous = file.length();
+            if(temp.renameTo(file)) {
+                if(mDiskBytes < 0) {
+                    mDiskBytes = measureDisk();
+                } else {
+                    mDiskBytes += file.length() - previous;
+                }
+
+                if(mDiskBytes > mDiskMaxBytes) {
+                    trimDisk();
+                }
+            } else {
+                temp.delete();
+            }
+        }
+    }
+
+    public void clearMemory() {
+        mMemoryCache.evictAll();
+    }
+
+    // delete least recently used files down to 90% of the limit
+    private void trimDisk() {
+        File[] files = mDiskDir.listFiles();
+        if(files == null) {
+            return;
+        }
+
+        mDiskBytes = CacheFiles.trim(files, mDiskBytes, mDiskMaxBytes / 10 * 9, false);
+    }
+
+    private long measureDisk() {
+        File[] files = mDiskDir.listFiles();
+
+        return files != null ? CacheFiles.getTotalBytes(files) : 0;
+    }
+
+    private File getDiskFile(String key) {
+        return new File(mDiskDir, CacheFiles.hash(key) + ".jpg");
+    }
+}
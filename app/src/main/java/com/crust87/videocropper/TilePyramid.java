@@ -0,0 +1,96 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * Levels of thumbnail tiles for a zoomable track.
+ * Level 0 has a tile at every base interval, each level above doubles the interval,
+ * so tile i of a level is at the time of tile 2i of the level below, and the two share a cached frame when decoded the same way.
+ * A zoom level only ever needs the tiles of one level that cover the screen, whatever the length of the clip.
+ * Plain Java without Android dependencies, so it can be unit tested on a desktop JVM.
+ */
+public class TilePyramid {
+    // Attributes
+    private final long mDurationUs;
+    private final long mBaseIntervalUs;
+    private final int mLevelCount;
+
+    // Constructors
+    // long baseIntervalUs: tile interval of the finest level
+    // long maxIntervalUs: the coarsest level has at least this interval
+    public TilePyramid(long durationUs, long baseIntervalUs, long maxIntervalUs) {
+        if(durationUs <= 0 || baseIntervalUs <= 0) {
+            throw new IllegalArgumentException("duration and base interval must be positive: " + durationUs + "us, " + baseIntervalUs + "us");
+        }
+
+        mDurationUs = durationUs;
+        mBaseIntervalUs = baseIntervalUs;
+
+        int levelCount = 1;
+        while(getIntervalUs(levelCount - 1) < maxIntervalUs && levelCount < 62) {
+            levelCount++;
+        }
+        mLevelCount = levelCount;
+    }
+
+    public long getDurationUs() {
+        return mDurationUs;
+    }
+
+    public int getLevelCount() {
+        return mLevelCount;
+    }
+
+    public long getIntervalUs(int level) {
+        return mBaseIntervalUs << level;
+    }
+
+    public int getTileCount(int level) {
+        long intervalUs = getIntervalUs(level);
+        return (int) ((mDurationUs + intervalUs - 1) / intervalUs);
+    }
+
+    public long getTimeUs(int level, int index) {
+        return index * getIntervalUs(level);
+    }
+
+    // tile of the level holding the time, clamped to the tiles of the level
+    public int getIndex(int level, long timeUs) {
+        if(timeUs <= 0) {
+            return 0;
+        }
+
+        return (int) Math.min(timeUs / getIntervalUs(level), getTileCount(level) - 1);
+    }
+
+    // coarsest level whose interval fits in spanUs, so tiles drawn a span wide are never stretched
+    // the finest level when even its interval is longer
+    public int getLevel(long spanUs) {
+        int level = 0;
+        while(level + 1 < mLevelCount && getIntervalUs(level + 1) <= spanUs) {
+            level++;
+        }
+
+        return level;
+    }
+}
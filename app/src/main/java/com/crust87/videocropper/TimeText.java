@@ -0,0 +1,93 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * Text of a time in seconds, written into a reused char buffer.
+ * Lets position labels be updated on every touch sample without building strings.
+ */
+public class TimeText {
+    private static final int MAX_DIGITS = 20;
+
+    // Attributes
+    private final char[] mBuffer;
+    private final int mPrefixLength;
+
+    // Working Variables
+    private int mLength;
+
+    // Constructors
+    public TimeText(String prefix) {
+        mPrefixLength = prefix.length();
+        mBuffer = new char[mPrefixLength + MAX_DIGITS];
+        prefix.getChars(0, mPrefixLength, mBuffer, 0);
+        mLength = mPrefixLength;
+    }
+
+    // prefix and seconds with three decimals, "seek: 12.345"
+    public TimeText setMillis(long millis) {
+        int index = mPrefixLength;
+        if(millis < 0) {
+            mBuffer[index++] = '-';
+            millis = -millis;
+        }
+
+        long seconds = millis / 1000;
+        int fraction = (int) (millis % 1000);
+
+        // integer digits backwards, then shift to place
+        int start = index;
+        do {
+            mBuffer[index++] = (char) ('0' + seconds % 10);
+            seconds /= 10;
+        } while(seconds > 0);
+
+        for(int i = start, j = index - 1; i < j; i++, j--) {
+            char c = mBuffer[i];
+            mBuffer[i] = mBuffer[j];
+            mBuffer[j] = c;
+        }
+
+        mBuffer[index++] = '.';
+        mBuffer[index++] = (char) ('0' + fraction / 100);
+        mBuffer[index++] = (char) ('0' + fraction / 10 % 10);
+        mBuffer[index++] = (char) ('0' + fraction % 10);
+
+        mLength = index;
+
+        return this;
+    }
+
+    public char[] getBuffer() {
+        return mBuffer;
+    }
+
+    public int length() {
+        return mLength;
+    }
+
+    @Override
+    public String toString() {
+        return new String(mBuffer, 0, mLength);
+    }
+}
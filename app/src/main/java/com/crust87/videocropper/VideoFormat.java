@@ -0,0 +1,123 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+/**
+ * H.264 profile, level, frame size and bitrate of a source's video stream, read from its SPS.
+ * A smart cut encodes its edges with these, so the joined stream keeps the format of the copied middle.
+ * Only 8 bit 4:2:0 profiles x264 writes are taken, see {@link #parse(byte[], int, int, int)}.
+ */
+public class VideoFormat {
+    private static final int NAL_SPS = 7;
+
+    // Attributes
+    private final String mProfile;
+    private final String mLevel;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mBitrate;		// bits per second
+
+    // Constructors
+    public VideoFormat(String profile, String level, int width, int height, int bitrate) {
+        mProfile = profile;
+        mLevel = level;
+        mWidth = width;
+        mHeight = height;
+        mBitrate = bitrate;
+    }
+
+    // byte[] sps: SPS NAL unit with or without its start code, the csd-0 of an AVC track
+    // return null when the stream can't be matched, a profile other than baseline, main and high or an unknown size or rate
+    public static VideoFormat parse(byte[] sps, int width, int height, int bitrate) {
+        if(sps == null || width <= 0 || height <= 0 || bitrate <= 0) {
+            return null;
+        }
+
+        // skip the start code
+        int offset = 0;
+        while(offset < sps.length && sps[offset] == 0) {
+            offset++;
+        }
+        if(offset > 0 && offset < sps.length && sps[offset] == 1) {
+            offset++;
+        }
+
+        if(offset + 3 >= sps.length || (sps[offset] & 0x1f) != NAL_SPS) {
+            return null;
+        }
+
+        int profileIdc = sps[offset + 1] & 0xff;
+        int constraints = sps[offset + 2] & 0xff;
+        int levelIdc = sps[offset + 3] & 0xff;
+
+        String profile = getProfileName(profileIdc);
+        if(profile == null || levelIdc == 0) {
+            return null;
+        }
+
+        // level 1b is 9, or 11 with constraint_set3 below high profile
+        boolean level1b = levelIdc == 9 || (levelIdc == 11 && profileIdc != 100 && (constraints & 0x10) != 0);
+        String level = level1b ? "1b" : (levelIdc / 10) + "." + (levelIdc % 10);
+
+        return new VideoFormat(profile, level, width, height, bitrate);
+    }
+
+    // x264 name of a profile_idc, null for profiles with other bit depths or chroma
+    private static String getProfileName(int profileIdc) {
+        switch(profileIdc) {
+            case 66:
+                return "baseline";
+            case 77:
+                return "main";
+            case 100:
+                return "high";
+            default:
+                return null;
+        }
+    }
+
+    public String getProfile() {
+        return mProfile;
+    }
+
+    public String getLevel() {
+        return mLevel;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getBitrate() {
+        return mBitrate;
+    }
+
+    // bitrate as an ffmpeg option, "15000k"
+    public String getBitrateOption() {
+        return Math.max(1, mBitrate / 1000) + "k";
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// track lookups with MediaExtractor, available from API 16
+public final class VideoProbe {
+    private VideoProbe() {
+    }
+
+    // find key frame time of video track
+    // boolean next: true for the first key frame at or after timeUs, false for the last at or before
+    // return -1 when it can't be found
+    public static long getSyncTime(String path, long timeUs, boolean next) {
+        return getSyncTimes(path, new long[] {timeUs}, next)[0];
+    }
+
+    // key frame times for several times from one extractor, the source is parsed once however many there are
+    // -1 for every time when they can't be found
+    public static long[] getSyncTimes(String path, long[] timesUs, boolean next) {
+        long[] syncTimesUs = new long[timesUs.length];
+        Arrays.fill(syncTimesUs, -1);
+
+        if(Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return syncTimesUs;
+        }
+
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+
+            int track = selectVideoTrack(extractor);
+            if(track >= 0) {
+                for(int i = 0; i < timesUs.length; i++) {
+                    extractor.seekTo(timesUs[i], next ? MediaExtractor.SEEK_TO_NEXT_SYNC : MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+                    syncTimesUs[i] = extractor.getSampleTime();
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            extractor.release();
+        }
+
+        return syncTimesUs;
+    }
+
+    // format of an AVC video track, null for other codecs or a stream a smart cut can't match
+    // the bitrate is the track's when the container has it, otherwise the file's over its duration as a cap
+    public static VideoFormat getVideoFormat(String path) {
+        if(Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return null;
+        }
+
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+
+            int track = selectVideoTrack(extractor);
+            if(track < 0) {
+                return null;
+            }
+
+            MediaFormat format = extractor.getTrackFormat(track);
+            ByteBuffer csd = format.getByteBuffer("csd-0");
+            if(!"video/avc".equals(format.getString(MediaFormat.KEY_MIME)) || csd == null) {
+                return null;
+            }
+
+            byte[] sps = new byte[csd.remaining()];
+            csd.duplicate().get(sps);
+
+            int bitrate = 0;
+            if(format.containsKey(MediaFormat.KEY_BIT_RATE)) {
+                bitrate = format.getInteger(MediaFormat.KEY_BIT_RATE);
+            } else if(format.containsKey(MediaFormat.KEY_DURATION) && format.getLong(MediaFormat.KEY_DURATION) > 0) {
+                bitrate = (int) Math.min(Integer.MAX_VALUE, new File(path).length() * 8 * 1000000 / format.getLong(MediaFormat.KEY_DURATION));
+            }
+
+            return VideoFormat.parse(sps, format.getInteger(MediaFormat.KEY_WIDTH), format.getInteger(MediaFormat.KEY_HEIGHT), bitrate);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            extractor.release();
+        }
+
+        return null;
+    }
+
+    // codec of the first audio track, null without one
+    public static String getAudioMime(String path) {
+        if(Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return null;
+        }
+
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+
+            for(int i = 0; i < extractor.getTrackCount(); i++) {
+                String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+                if(mime != null && mime.startsWith("audio/")) {
+                    return mime;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            extractor.release();
+        }
+
+        return null;
+    }
+
+    // select first video track, return its index or -1
+    static int selectVideoTrack(MediaExtractor extractor) {
+        for(int i = 0; i < extractor.getTrackCount(); i++) {
+            String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if(mime != null && mime.startsWith("video/")) {
+                extractor.selectTrack(i);
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
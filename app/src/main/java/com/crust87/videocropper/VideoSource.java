@@ -0,0 +1,161 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper;
+
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A selected video resolved by {@link InputResolver}.
+ * The path is a file path, or for a content URI without one, the /proc path of a descriptor held open by this source.
+ * Both are read by ffmpeg and MediaExtractor in place, nothing is copied, see {@link FFmpegRunner} for how ffmpeg gets a descriptor.
+ * The descriptor is closed when the resolver and every holder of the source have released it.
+ * A descriptor path changes with every run of the app, so caches key such a source on its URI, see getStableKey.
+ */
+public class VideoSource {
+    // descriptor paths of open sources to their URIs, the number of a closed descriptor is reused for other files
+    private static final ConcurrentHashMap<String, String> sDescriptorUris = new ConcurrentHashMap<>();
+
+    // Attributes
+    private final Uri mUri;
+    private final String mPath;
+    private final ParcelFileDescriptor mDescriptor;	// null for a file path
+    private int mReferences;						// the resolver's and the holders', the descriptor is closed at 0
+
+    // Metadata
+    private long mDurationUs;
+    private int mWidth;
+    private int mHeight;
+    private int mRotation;
+    private boolean mHasAudio;
+
+    // Constructors
+    VideoSource(Uri uri, String path, ParcelFileDescriptor descriptor) {
+        mUri = uri;
+        mPath = path;
+        mDescriptor = descriptor;
+        mReferences = 1;
+
+        if(descriptor != null) {
+            sDescriptorUris.put(path, uri.toString());
+        }
+    }
+
+    // /proc path of the descriptor in this process
+    static String getDescriptorPath(ParcelFileDescriptor descriptor) {
+        return getDescriptorPrefix() + descriptor.getFd();
+    }
+
+    // true for a path made by getDescriptorPath, it can be opened only by this process
+    public static boolean isDescriptorPath(String path) {
+        return path.startsWith(getDescriptorPrefix());
+    }
+
+    // the URI for the descriptor path of an open source, the path itself otherwise
+    // caches key an input on this with its size and modified time, so entries outlive the process
+    public static String getStableKey(String path) {
+        String uri = sDescriptorUris.get(path);
+        return uri != null ? uri : path;
+    }
+
+    private static String getDescriptorPrefix() {
+        return "/proc/" + Process.myPid() + "/fd/";
+    }
+
+    void setMetadata(long durationUs, int width, int height, int rotation, boolean hasAudio) {
+        mDurationUs = durationUs;
+        mWidth = width;
+        mHeight = height;
+        mRotation = rotation;
+        mHasAudio = hasAudio;
+    }
+
+    public Uri getUri() {
+        return mUri;
+    }
+
+    // input path for ffmpeg and in process readers
+    public String getPath() {
+        return mPath;
+    }
+
+    // true when the path is only valid while this source is open
+    public boolean isDescriptor() {
+        return mDescriptor != null;
+    }
+
+    public ParcelFileDescriptor getDescriptor() {
+        return mDescriptor;
+    }
+
+    public long getDurationUs() {
+        return mDurationUs;
+    }
+
+    // stored frame size, see getRotation
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getRotation() {
+        return mRotation;
+    }
+
+    public boolean hasAudio() {
+        return mHasAudio;
+    }
+
+    // keep the descriptor open until release, false when it's already closed
+    public synchronized boolean acquire() {
+        if(mReferences == 0) {
+            return false;
+        }
+
+        mReferences++;
+        return true;
+    }
+
+    public synchronized void release() {
+        if(mReferences == 0) {
+            return;
+        }
+
+        mReferences--;
+        if(mReferences == 0 && mDescriptor != null) {
+            sDescriptorUris.remove(mPath, mUri.toString());
+            try {
+                mDescriptor.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
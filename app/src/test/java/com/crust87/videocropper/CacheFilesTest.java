@@ -0,0 +1,64 @@
+package com.crust87.videocropper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+public class CacheFilesTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void hash_isHexSha1() throws Exception {
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", CacheFiles.hash("abc"));
+    }
+
+    @Test
+    public void trim_deletesLeastRecentlyUsedFirst() throws Exception {
+        File[] files = newFiles(3, 1000);
+
+        long left = CacheFiles.trim(files, 3000, 2000, false);
+
+        assertEquals(2000, left);
+        assertFalse(files[0].exists());
+        assertTrue(files[1].exists());
+        assertTrue(files[2].exists());
+    }
+
+    @Test
+    public void trim_keepsNewestAndSkipsNull() throws Exception {
+        File[] files = newFiles(3, 1000);
+        files[1].delete();
+        files[1] = null;
+
+        long left = CacheFiles.trim(files, CacheFiles.getTotalBytes(files), 0, true);
+
+        assertEquals(1000, left);
+        assertFalse(files[0].exists());
+        assertTrue(files[2].exists());
+    }
+
+    // files[i] was used before files[i + 1]
+    private File[] newFiles(int count, int length) throws Exception {
+        long now = System.currentTimeMillis();
+
+        File[] files = new File[count];
+        for(int i = 0; i < count; i++) {
+            files[i] = mFolder.newFile("file" + i);
+            FileOutputStream out = new FileOutputStream(files[i]);
+            try {
+                out.write(new byte[length]);
+            } finally {
+                out.close();
+            }
+            files[i].setLastModified(now - (count - i) * 60000L);
+        }
+
+        return files;
+    }
+}
@@ -0,0 +1,262 @@
+package com.crust87.videocropper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CropCommandBuilderTest {
+    private CropCommandBuilder mBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        mBuilder = new CropCommandBuilder()
+                .setInput("/in.mp4")
+                .setOutput("/out.mp4")
+                .setVideoSize(1920, 1080)
+                .setCrop(100, 20, 600, 450)
+                .setRatio(4, 3)
+                .setRange(12000000, 8500000);
+    }
+
+    @Test
+    public void build_encodesWithInputSeek() throws Exception {
+        assertEquals(Arrays.asList("-y", "-ss", "7.000", "-i", "/in.mp4", "-ss", "5.000", "-t", "8.500",
+                "-vcodec", "libx264", "-profile:v", "baseline", "-level", "3.1", "-b:v", "1000k",
+                "-vf", "crop=600:450:100:20, scale=640:480, setsar=1:1", "-c:a", "copy", "/out.mp4"), mBuilder.build());
+    }
+
+    @Test
+    public void build_seekInsidePrerollHasNoCoarseSeek() throws Exception {
+        List<String> commands = mBuilder.setRange(3000000, 1000000).build();
+
+        assertEquals(Arrays.asList("-y", "-i", "/in.mp4", "-ss", "3.000", "-t", "1.000"), commands.subList(0, 7));
+    }
+
+    @Test
+    public void build_keyframesReplaceFixedPreroll() throws Exception {
+        List<String> commands = mBuilder.setKeyframes(new KeyframeIndex(new long[] {0, 10000000, 20000000}, 3)).build();
+
+        assertEquals(Arrays.asList("-y", "-ss", "10.000", "-i", "/in.mp4", "-ss", "2.000", "-t", "8.500"), commands.subList(0, 9));
+    }
+
+    @Test
+    public void build_appliesEncodePreset() throws Exception {
+        List<String> commands = mBuilder.setEncodePreset(new EncodePreset("veryfast", "zerolatency", 4, 0)).build();
+
+        assertEquals(Arrays.asList("-vcodec", "libx264", "-profile:v", "baseline", "-level", "3.1",
+                "-preset", "veryfast", "-tune", "zerolatency", "-threads", "4", "-b:v", "1000k"), commands.subList(9, 23));
+
+        commands = mBuilder.setEncodePreset(new EncodePreset("medium", null, 0, 21)).build();
+        assertEquals(Arrays.asList("-preset", "medium", "-crf", "21", "-maxrate", "1000k", "-bufsize", "1000k"), commands.subList(15, 23));
+    }
+
+    @Test
+    public void build_withoutExactSeekOnlySeeksInput() throws Exception {
+        List<String> commands = mBuilder.setExactSeek(false).build();
+
+        assertEquals(Arrays.asList("-y", "-ss", "12.000", "-i", "/in.mp4", "-t", "8.500"), commands.subList(0, 7));
+    }
+
+    @Test
+    public void build_trimOnlyCopiesStreams() throws Exception {
+        List<String> commands = mBuilder.setRatio(0, 0).build();
+
+        assertTrue(mBuilder.isTrimOnly());
+        assertEquals(Arrays.asList("-y", "-ss", "12.000", "-i", "/in.mp4", "-t", "8.500",
+                "-c", "copy", "-avoid_negative_ts", "make_zero", "/out.mp4"), commands);
+    }
+
+    @Test
+    public void build_renditionsShareOneDecode() throws Exception {
+        List<String> commands = mBuilder.setOutput(null)
+                .addRendition(new Rendition("/out_640.mp4", 640, "1000k", "baseline", "3.1"))
+                .addRendition(new Rendition("/out_360.mp4", 360, "400k", "baseline", "3.0"))
+                .build();
+
+        assertEquals(Arrays.asList("-y", "-ss", "7.000", "-i", "/in.mp4", "-filter_complex",
+                "[0:v]crop=600:450:100:20, split=2[s0][s1]; [s0]scale=640:480, setsar=1:1[v0]; [s1]scale=360:270, setsar=1:1[v1]",
+                "-map", "[v0]", "-map", "0:a?", "-ss", "5.000", "-t", "8.500",
+                "-vcodec", "libx264", "-profile:v", "baseline", "-level", "3.1", "-b:v", "1000k", "-c:a", "copy", "/out_640.mp4",
+                "-map", "[v1]", "-map", "0:a?", "-ss", "5.000", "-t", "8.500",
+                "-vcodec", "libx264", "-profile:v", "baseline", "-level", "3.0", "-b:v", "400k", "-c:a", "copy", "/out_360.mp4"), commands);
+        assertEquals("/out_640.mp4", mBuilder.getOutput());
+
+        // a ladder encoded with another preset isn't the same job
+        String key = mBuilder.getJobKey();
+        assertNotEquals(key, mBuilder.setEncodePreset(new EncodePreset("veryfast", null, 2, 23)).getJobKey());
+    }
+
+    @Test
+    public void buildRenditionFilter_scalesSourceWithoutRatio() throws Exception {
+        mBuilder.setRatio(0, 0).addRendition(new Rendition("/out_480.mp4", 480, "700k", "baseline", "3.1"));
+
+        assertFalse(mBuilder.isTrimOnly());
+        assertEquals("[0:v]split=1[s0]; [s0]scale=w='if(gt(iw,ih),480,-2)':h='if(gt(iw,ih),-2,480)', setsar=1:1[v0]", mBuilder.buildRenditionFilter());
+    }
+
+    @Test
+    public void build_fragmentedOutputToPipe() throws Exception {
+        List<String> commands = mBuilder.setOutput("pipe:1").setOutputFormat("mp4").setFragmented(true).build();
+
+        assertEquals(Arrays.asList("-movflags", "frag_keyframe+empty_moov", "-f", "mp4", "pipe:1"), commands.subList(commands.size() - 5, commands.size()));
+        assertEquals(Arrays.asList("-y", "-f", "concat", "-safe", "0", "-i", "/list.txt", "-c", "copy", "-bsf:a", "aac_adtstoasc",
+                "-movflags", "frag_keyframe+empty_moov", "-f", "mp4", "pipe:1"), mBuilder.buildConcat("/list.txt"));
+        assertNotEquals(new CropCommandBuilder().setInput("/in.mp4").setRange(0, 1000000).getJobKey(),
+                new CropCommandBuilder().setInput("/in.mp4").setRange(0, 1000000).setFragmented(true).getJobKey());
+    }
+
+    @Test
+    public void build_rangesJoinedFromOneDecode() throws Exception {
+        RangeList ranges = new RangeList();
+        ranges.add(12000000, 14000000);
+        ranges.add(20000000, 21500000);
+        List<String> commands = mBuilder.setKeyframes(new KeyframeIndex(new long[] {0, 10000000, 20000000}, 3)).setRanges(ranges).build();
+
+        assertTrue(mBuilder.hasRanges());
+        assertEquals(3500000, mBuilder.getDurationUs());
+        assertEquals(Arrays.asList("-y", "-ss", "10.000", "-t", "11.500", "-i", "/in.mp4", "-filter_complex",
+                "[0:v]split=2[s0][s1]; [0:a]asplit=2[t0][t1]; "
+                        + "[s0]trim=start=2.000:end=4.000, setpts=PTS-STARTPTS[v0]; [t0]atrim=start=2.000:end=4.000, asetpts=PTS-STARTPTS[a0]; "
+                        + "[s1]trim=start=10.000:end=11.500, setpts=PTS-STARTPTS[v1]; [t1]atrim=start=10.000:end=11.500, asetpts=PTS-STARTPTS[a1]; "
+                        + "[v0][a0][v1][a1]concat=n=2:v=1:a=1[c][a]; [c]crop=600:450:100:20, scale=640:480, setsar=1:1[v]",
+                "-map", "[v]", "-vcodec", "libx264", "-profile:v", "baseline", "-level", "3.1", "-b:v", "1000k",
+                "-map", "[a]", "-c:a", "aac", "-b:a", "128k", "/out.mp4"), commands);
+    }
+
+    @Test
+    public void buildRangeFilter_withoutAudio() throws Exception {
+        RangeList ranges = new RangeList();
+        ranges.add(0, 1000000);
+        ranges.add(2000000, 3000000);
+        mBuilder.setRatio(0, 0).setRanges(ranges).setHasAudio(false);
+
+        assertFalse(mBuilder.isTrimOnly());
+        assertEquals("[0:v]split=2[s0][s1]; [s0]trim=start=0.000:end=1.000, setpts=PTS-STARTPTS[v0]; "
+                + "[s1]trim=start=2.000:end=3.000, setpts=PTS-STARTPTS[v1]; [v0][v1]concat=n=2:v=1:a=0[c]; "
+                + "[c]crop=600:450:100:20, setsar=1:1[v]", mBuilder.buildRangeFilter(0));
+        List<String> commands = mBuilder.build();
+        assertEquals("-an", commands.get(commands.size() - 2));
+    }
+
+    @Test
+    public void build_encodesAudioMp4CantCopy() throws Exception {
+        List<String> commands = mBuilder.setAudioMime("audio/3gpp").build();
+        assertEquals(Arrays.asList("-c:a", "aac", "-b:a", "128k", "/out.mp4"), commands.subList(commands.size() - 5, commands.size()));
+
+        commands = mBuilder.setRatio(0, 0).build();
+        assertEquals(Arrays.asList("-c:v", "copy", "-c:a", "aac", "-b:a", "128k"), commands.subList(7, 13));
+
+        commands = mBuilder.setAudioMime("audio/mp4a-latm").build();
+        assertEquals(Arrays.asList("-c", "copy", "-avoid_negative_ts"), commands.subList(7, 10));
+    }
+
+    @Test
+    public void build_copiesExtractedAudioSeekedWithVideo() throws Exception {
+        List<String> commands = mBuilder.setAudioMime("audio/3gpp").setAudioInput("/audio.m4a").build();
+
+        assertEquals(Arrays.asList("-y", "-ss", "7.000", "-i", "/in.mp4", "-ss", "7.000", "-i", "/audio.m4a", "-ss", "5.000", "-t", "8.500"), commands.subList(0, 13));
+        assertEquals(Arrays.asList("-map", "0:v:0", "-map", "1:a:0", "-c:a", "copy", "/out.mp4"), commands.subList(commands.size() - 7, commands.size()));
+    }
+
+    @Test
+    public void build_dropsAudio() throws Exception {
+        List<String> commands = mBuilder.setDropAudio(true).setAudioInput("/audio.m4a").build();
+
+        assertFalse(commands.contains("/audio.m4a"));
+        assertEquals(Arrays.asList("-an", "/out.mp4"), commands.subList(commands.size() - 2, commands.size()));
+        assertEquals(Arrays.asList("-y", "-i", "/in.mp4", "-map", "0:a:0", "-c:a", "aac", "-b:a", "128k", "-f", "mp4", "/audio.m4a"),
+                CropCommandBuilder.buildAudioExtract("/in.mp4", "/audio.m4a", false));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void build_isImmutable() throws Exception {
+        mBuilder.build().add("-an");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void build_failsWithoutOutput() throws Exception {
+        mBuilder.setOutput(null).build();
+    }
+
+    @Test
+    public void buildFilter_mapsCropByRotation() throws Exception {
+        assertEquals("crop=450:600:20:100, scale=640:480, setsar=1:1", mBuilder.setRotate(90).buildFilter());
+        assertEquals("crop=600:450:1220:20, scale=640:480, setsar=1:1", mBuilder.setRotate(180).buildFilter());
+        assertEquals("crop=450:600:610:100, scale=640:480, setsar=1:1", mBuilder.setRotate(270).buildFilter());
+    }
+
+    @Test
+    public void buildFilter_scalesLongSideByRatio() throws Exception {
+        assertEquals("crop=600:450:100:20, scale=640:640, setsar=1:1", mBuilder.setRatio(1, 1).buildFilter());
+        assertEquals("crop=600:450:100:20, scale=480:640, setsar=1:1", mBuilder.setRatio(3, 4).buildFilter());
+        assertEquals("crop=600:450:100:20, scale=640:360, setsar=1:1", mBuilder.setRatio(16, 9).buildFilter());
+    }
+
+    @Test
+    public void buildSegment_copiesMiddleAsTransportStream() throws Exception {
+        assertEquals(Arrays.asList("-y", "-ss", "14.000", "-i", "/in.mp4", "-t", "4.000", "-c", "copy",
+                "-bsf:v", "h264_mp4toannexb", "-f", "mpegts", "/middle.ts"),
+                mBuilder.buildSegment(14000000, 18000000, "/middle.ts", true));
+    }
+
+    @Test
+    public void buildSmartCutEdge_matchesSourceFormat() throws Exception {
+        VideoFormat format = new VideoFormat("high", "4.0", 1920, 1080, 15000000);
+        List<String> commands = mBuilder.setRatio(0, 0)
+                .setEncodePreset(new EncodePreset("veryfast", null, 2, 23))
+                .buildSmartCutEdge(12000000, 14000000, "/head.ts", format);
+
+        assertEquals(Arrays.asList("-vcodec", "libx264", "-profile:v", "high", "-level", "4.0",
+                "-preset", "veryfast", "-threads", "2", "-b:v", "15000k", "-pix_fmt", "yuv420p"),
+                commands.subList(commands.indexOf("-vcodec"), commands.indexOf("-pix_fmt") + 2));
+        assertFalse(commands.contains("-crf"));
+        assertFalse(commands.contains("-vf"));
+        assertEquals(Arrays.asList("-bsf:v", "h264_mp4toannexb", "-f", "mpegts", "/head.ts"), commands.subList(commands.size() - 5, commands.size()));
+    }
+
+    @Test
+    public void buildProxy_scalesLongSideWithShortGop() throws Exception {
+        List<String> commands = CropCommandBuilder.buildProxy("/in.mp4", "/proxy.mp4", 640, 10, "audio/mp4a-latm");
+
+        assertEquals("scale=w='if(gt(iw,ih),640,-2)':h='if(gt(iw,ih),-2,640)'", commands.get(commands.indexOf("-vf") + 1));
+        assertEquals("10", commands.get(commands.indexOf("-g") + 1));
+        assertEquals("copy", commands.get(commands.indexOf("-c:a") + 1));
+        assertEquals("/proxy.mp4", commands.get(commands.size() - 1));
+
+        // AMR can't go into MP4 as it is
+        commands = CropCommandBuilder.buildProxy("/in.mp4", "/proxy.mp4", 640, 10, "audio/3gpp");
+        assertEquals(Arrays.asList("-c:a", "aac", "-b:a", "128k"), commands.subList(commands.indexOf("-c:a"), commands.indexOf("-c:a") + 4));
+    }
+
+    @Test
+    public void buildPreviewFrames_seeksEveryStillAndPipesRawFrames() throws Exception {
+        List<String> commands = mBuilder.buildPreviewFrames(2, 320, 240);
+
+        assertEquals(Arrays.asList("-nostats", "-loglevel", "error", "-ss", "14.125", "-i", "/in.mp4", "-ss", "18.375", "-i", "/in.mp4",
+                "-filter_complex", "[0:v]trim=end_frame=1, crop=600:450:100:20, scale=320:240, setsar=1:1[f0]; "
+                        + "[1:v]trim=end_frame=1, crop=600:450:100:20, scale=320:240, setsar=1:1[f1]; [f0][f1]concat=n=2:v=1:a=0[out]",
+                "-map", "[out]", "-vsync", "passthrough", "-frames:v", "2", "-f", "rawvideo", "-pix_fmt", "rgba", "pipe:1"), commands);
+    }
+
+    @Test
+    public void getScaledSize_followsRatioOrCrop() throws Exception {
+        assertEquals(320, mBuilder.getScaledWidth(320));
+        assertEquals(240, mBuilder.getScaledHeight(320));
+
+        mBuilder.setRatio(0, 0).setCrop(0, 0, 1080, 1920);
+        assertEquals(180, mBuilder.getScaledWidth(320));
+        assertEquals(320, mBuilder.getScaledHeight(320));
+    }
+
+    @Test
+    public void formatSeconds_roundsToMilliseconds() throws Exception {
+        assertEquals("0.000", mBuilder.formatSeconds(0));
+        assertEquals("0.001", mBuilder.formatSeconds(999));
+        assertEquals("61.050", mBuilder.formatSeconds(61050000));
+        assertEquals("3725.400", mBuilder.formatSeconds(3725400000L));
+    }
+}
@@ -0,0 +1,73 @@
+package com.crust87.videocropper;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+public class CropJobTest {
+    private final CropJob mJob = new CropJob(1, new CropCommandBuilder(), 0, CropJob.PRIORITY_BACKGROUND);
+
+    @Test
+    public void attach_runnerFollowsPauseAndPreemption() throws Exception {
+        FFmpegRunner runner = new FFmpegRunner(new File("/ffmpeg"));
+        mJob.setPreempted(true);
+        mJob.attach(runner);
+        assertTrue(runner.isPaused());
+
+        mJob.setPaused(true);
+        mJob.setPreempted(false);
+        assertTrue(runner.isPaused());
+
+        mJob.setPaused(false);
+        assertFalse(runner.isPaused());
+        assertFalse(mJob.isPaused());
+    }
+
+    @Test
+    public void cancel_destroysAttachedAndLaterRunners() throws Exception {
+        FFmpegRunner running = new FFmpegRunner(new File("/ffmpeg"));
+        mJob.attach(running);
+        mJob.cancel();
+
+        FFmpegRunner later = new FFmpegRunner(new File("/ffmpeg"));
+        mJob.attach(later);
+
+        assertTrue(mJob.isCancelled());
+        assertTrue(running.isCancelled());
+        assertTrue(later.isCancelled());
+    }
+
+    @Test
+    public void detach_stopsFollowing() throws Exception {
+        FFmpegRunner runner = new FFmpegRunner(new File("/ffmpeg"));
+        mJob.attach(runner);
+        mJob.detach(runner);
+        mJob.setPaused(true);
+
+        assertFalse(runner.isPaused());
+    }
+
+    @Test
+    public void outputSink_streamIsFragmentedAndNotAFile() throws Exception {
+        assertTrue(mJob.hasFileOutput());
+
+        OutputSink sink = OutputSink.stream(new FFmpegRunner.OnReadProcessOutputListener() {
+            @Override
+            public void onReadProcessOutput(InputStream output) throws IOException {
+            }
+        });
+        CropCommandBuilder builder = new CropCommandBuilder().setInput("/in.mp4").setRange(0, 1000000);
+        sink.applyTo(builder);
+        CropJob job = new CropJob(2, builder, sink, 0, CropJob.PRIORITY_FOREGROUND);
+
+        assertFalse(job.hasFileOutput());
+        assertTrue(builder.isFragmented());
+        assertEquals("pipe:1", job.getOutput());
+        assertTrue(OutputSink.file("/out.mp4").isFile());
+        assertFalse(OutputSink.file("/out.mp4").isFragmented());
+    }
+}
@@ -0,0 +1,54 @@
+package com.crust87.videocropper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DragStatsTest {
+    private long mAllocations;
+
+    @Test
+    public void recordsAllocationsOfEventsAndFrames() throws Exception {
+        DragStats stats = new DragStats(new DragStats.AllocationCounter() {
+            @Override
+            public long getCount() {
+                return mAllocations;
+            }
+        });
+
+        stats.beginEvent();
+        mAllocations += 3;
+        stats.endEvent();
+
+        stats.beginFrame();
+        mAllocations += 2;
+        stats.endFrame();
+
+        stats.beginFrame();
+        stats.endFrame();
+
+        assertEquals(1, stats.getEventCount());
+        assertEquals(2, stats.getFrameCount());
+        assertEquals(5, stats.getAllocations());
+
+        stats.reset();
+        assertEquals(0, stats.getEventCount());
+        assertEquals(0, stats.getFrameCount());
+        assertEquals(0, stats.getAllocations());
+    }
+
+    @Test
+    public void countsSlowFrames() throws Exception {
+        DragStats stats = new DragStats(null);
+
+        for(int i = 0; i < 300; i++) {
+            stats.beginFrame();
+            stats.endFrame();
+        }
+
+        assertEquals(300, stats.getFrameCount());
+        assertTrue(stats.getMaxFrameNanos() >= stats.getAverageFrameNanos());
+        assertEquals(0, stats.countSlowFrames(Long.MAX_VALUE));
+        assertEquals(0, stats.getAllocations());
+    }
+}
@@ -0,0 +1,70 @@
+package com.crust87.videocropper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FFmpegProgressParserTest {
+    private FFmpegProgressParser mParser;
+
+    @Before
+    public void setUp() throws Exception {
+        mParser = new FFmpegProgressParser(20000000);
+        mParser.start(1000);
+    }
+
+    @Test
+    public void parseLine_readsStatsLine() throws Exception {
+        assertTrue(mParser.parseLine("frame=  240 fps= 60 q=28.0 size=     512kB time=00:00:08.00 bitrate= 524.3kbits/s speed=1.99x", 5000));
+
+        CropProgress progress = mParser.getProgress();
+        assertEquals(240, progress.frame);
+        assertEquals(60f, progress.fps, 0.001f);
+        assertEquals(1.99f, progress.speed, 0.001f);
+        assertEquals(8000000, progress.timeUs);
+        assertEquals(40f, progress.percent, 0.001f);
+        assertEquals(6030, progress.etaMs);
+    }
+
+    @Test
+    public void parseLine_readsProgressKeyValues() throws Exception {
+        assertFalse(mParser.parseLine("frame=120", 2000));
+        assertFalse(mParser.parseLine("fps=30.00", 2000));
+        assertTrue(mParser.parseLine("out_time_us=5000000", 2000));
+        assertFalse(mParser.parseLine("speed=2.5x", 2000));
+
+        CropProgress progress = mParser.getProgress();
+        assertEquals(120, progress.frame);
+        assertEquals(30f, progress.fps, 0.001f);
+        assertEquals(25f, progress.percent, 0.001f);
+    }
+
+    @Test
+    public void parseLine_estimatesFromWallClockWithoutSpeed() throws Exception {
+        assertTrue(mParser.parseLine("frame=  100 fps=25 q=28.0 size=     128kB time=00:00:05.00 bitrate= 209.7kbits/s speed=N/A", 3000));
+
+        CropProgress progress = mParser.getProgress();
+        assertEquals(0f, progress.speed, 0f);
+        assertEquals(5998, progress.etaMs);
+    }
+
+    @Test
+    public void parseLine_ignoresOtherLines() throws Exception {
+        assertFalse(mParser.parseLine("  Duration: 00:05:00.00, start: 0.000000, bitrate: 4000 kb/s", 2000));
+        assertFalse(mParser.parseLine("size=       0kB time=-577014:32:22.77 bitrate=  -0.0kbits/s", 2000));
+        assertFalse(mParser.parseLine("out_time=00:00:05.000000", 2000));
+        assertFalse(mParser.parseLine(null, 2000));
+    }
+
+    @Test
+    public void parseLine_addsOffsetAndClampsToDuration() throws Exception {
+        mParser.setOffset(15000000);
+        assertTrue(mParser.parseLine("frame=  60 fps=30 time=00:00:02.50 speed=1x", 2000));
+        assertEquals(87.5f, mParser.getProgress().percent, 0.001f);
+
+        assertTrue(mParser.parseLine("frame=  200 fps=30 time=00:01:00.00 speed=1x", 2000));
+        assertEquals(100f, mParser.getProgress().percent, 0.001f);
+        assertEquals(0, mParser.getProgress().etaMs);
+    }
+}
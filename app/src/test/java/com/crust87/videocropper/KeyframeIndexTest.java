@@ -0,0 +1,69 @@
+package com.crust87.videocropper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import static org.junit.Assert.*;
+
+public class KeyframeIndexTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    // unsorted, only the first three are taken
+    private final KeyframeIndex mIndex = new KeyframeIndex(new long[] {4000000, 0, 2000000, 1000000}, 3);
+
+    @Test
+    public void floorAndCeiling_findSurroundingKeyframes() throws Exception {
+        assertEquals(3, mIndex.size());
+        assertEquals(2000000, mIndex.floor(3999999));
+        assertEquals(4000000, mIndex.floor(4000000));
+        assertEquals(4000000, mIndex.floor(9000000));
+        assertEquals(2000000, mIndex.ceiling(1));
+        assertEquals(-1, mIndex.ceiling(4000001));
+        assertEquals(-1, new KeyframeIndex(new long[] {1000000}, 1).floor(999999));
+    }
+
+    @Test
+    public void nearest_prefersEarlierOnTie() throws Exception {
+        assertEquals(2000000, mIndex.nearest(2900000));
+        assertEquals(4000000, mIndex.nearest(3100000));
+        assertEquals(2000000, mIndex.nearest(3000000));
+        assertEquals(-1, new KeyframeIndex(new long[0], 0).nearest(0));
+        assertTrue(mIndex.isKeyframe(2000000));
+        assertFalse(mIndex.isKeyframe(1000000));
+    }
+
+    @Test
+    public void write_roundTrips() throws Exception {
+        File file = new File(mFolder.getRoot(), "index.idx");
+        mIndex.write(file);
+
+        KeyframeIndex read = KeyframeIndex.read(file);
+        assertNotNull(read);
+        assertEquals(3, read.size());
+        assertEquals(0, read.get(0));
+        assertEquals(4000000, read.get(2));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void read_rejectsBrokenFile() throws Exception {
+        File file = new File(mFolder.getRoot(), "index.idx");
+        FileWriter writer = new FileWriter(file);
+        writer.write("broken");
+        writer.close();
+
+        assertNull(KeyframeIndex.read(file));
+        assertNull(KeyframeIndex.read(new File(mFolder.getRoot(), "missing.idx")));
+    }
+
+    @Test
+    public void parseShowInfoTime_readsFrameLinesOnly() throws Exception {
+        assertEquals(3600000, KeyframeIndex.parseShowInfoTime("[Parsed_showinfo_0 @ 0x7f8c] n:   3 pts: 276480 pts_time:3.6     pos: 1027385 fmt:yuv420p"));
+        assertEquals(-1, KeyframeIndex.parseShowInfoTime("frame=   12 fps=0.0 q=-0.0 size=N/A time=00:00:03.60 bitrate=N/A"));
+    }
+}
@@ -0,0 +1,87 @@
+package com.crust87.videocropper;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsRecorderTest {
+    @Test
+    public void record_overwritesOldestWhenFull() throws Exception {
+        MetricsRecorder recorder = new MetricsRecorder(3);
+        for(int i = 1; i <= 5; i++) {
+            recorder.record(newMetrics(i));
+        }
+
+        List<JobMetrics> records = recorder.snapshot();
+        assertEquals(5, recorder.getRecordCount());
+        assertEquals(3, records.size());
+        assertEquals(3, records.get(0).jobId);
+        assertEquals(5, records.get(2).jobId);
+    }
+
+    @Test
+    public void onProgress_tracksFirstFrameAndPeakFps() throws Exception {
+        JobMetrics metrics = newMetrics(1);
+        CropProgress progress = new CropProgress();
+
+        metrics.onProgress(progress, 1100);
+        progress.frame = 30;
+        progress.fps = 45;
+        metrics.onProgress(progress, 1500);
+        progress.frame = 90;
+        progress.fps = 30;
+        metrics.onProgress(progress, 2500);
+        metrics.finish(true, 3500);
+
+        assertEquals(500, metrics.firstFrameMs);
+        assertEquals(45, metrics.peakFps, 0);
+        assertEquals(90, metrics.frames);
+        assertEquals(45, metrics.averageFps, 0.01);
+        assertEquals(2500, metrics.totalMs);
+        assertEquals(200, metrics.getQueueWaitMs());
+    }
+
+    @Test
+    public void onProgress_sumsFramesOverRuns() throws Exception {
+        JobMetrics metrics = newMetrics(1);
+        CropProgress progress = new CropProgress();
+
+        // each ffmpeg run counts its frames from zero
+        progress.frame = 240;
+        metrics.onProgress(progress, 0, 1500);
+        progress.frame = 60;
+        metrics.onProgress(progress, 240, 2000);
+
+        assertEquals(300, metrics.frames);
+    }
+
+    @Test
+    public void exportJsonLines_writesObjectPerLine() throws Exception {
+        MetricsRecorder recorder = new MetricsRecorder(4);
+        JobMetrics metrics = newMetrics(7);
+        metrics.parameters = "/in \"a\".mp4|crop=1:1:0:0\n";
+        recorder.record(metrics);
+        recorder.record(newMetrics(8));
+
+        StringWriter writer = new StringWriter();
+        recorder.exportJsonLines(writer);
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"jobId\":7,\"parameters\":\"/in \\\"a\\\".mp4|crop=1:1:0:0\\n\",\"flags\":0,"));
+        assertTrue(lines[0].contains("\"queueWaitMs\":200"));
+        assertTrue(lines[1].endsWith("\"cacheHit\":false}"));
+    }
+
+    private static JobMetrics newMetrics(int jobId) {
+        JobMetrics metrics = new JobMetrics();
+        metrics.jobId = jobId;
+        metrics.enqueueMs = 800;
+        metrics.startMs = 1000;
+
+        return metrics;
+    }
+}
@@ -0,0 +1,65 @@
+package com.crust87.videocropper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PresetTableTest {
+    @Test
+    public void choose_takesSlowestPresetMeetingTarget() throws Exception {
+        PresetTable table = PresetTable.decode("ultrafast:6.1,superfast:4.2,veryfast:2.5,faster:1.4,fast:0.9");
+
+        EncodePreset preset = table.choose(30000000, 4);
+        assertEquals("faster", preset.getPreset());
+        assertNull(preset.getTune());
+        assertEquals(4, preset.getThreads());
+        assertEquals(0, preset.getCrf());
+
+        // a 15 minute clip needs three times real time
+        assertEquals("superfast", table.choose(15 * 60 * 1000000L, 4).getPreset());
+    }
+
+    @Test
+    public void choose_scalesTargetByConcurrentEncodes() throws Exception {
+        PresetTable table = PresetTable.decode("ultrafast:6.1,superfast:4.2,veryfast:2.5,faster:1.4,fast:0.9");
+
+        // two encodes at once each need twice real time alone
+        EncodePreset preset = table.choose(30000000, 2, 2);
+        assertEquals("veryfast", preset.getPreset());
+        assertEquals(2, preset.getThreads());
+        assertEquals("ultrafast", table.choose(30000000, 1, 6).getPreset());
+        assertEquals(PresetTable.FALLBACK_TUNE, table.choose(30000000, 1, 8).getTune());
+    }
+
+    @Test
+    public void choose_spendsHeadroomOnQuality() throws Exception {
+        PresetTable table = PresetTable.decode("ultrafast:12,superfast:9,veryfast:7,faster:5,fast:4,medium:3");
+
+        EncodePreset preset = table.choose(30000000, 8);
+        assertEquals("medium", preset.getPreset());
+        assertEquals(PresetTable.QUALITY_CRF, preset.getCrf());
+    }
+
+    @Test
+    public void choose_tunesFastestPresetOnSlowDevice() throws Exception {
+        EncodePreset preset = PresetTable.decode("ultrafast:0.6").choose(30000000, 2);
+
+        assertEquals("ultrafast", preset.getPreset());
+        assertEquals(PresetTable.FALLBACK_TUNE, preset.getTune());
+        assertNull(new PresetTable().choose(30000000, 2));
+    }
+
+    @Test
+    public void encode_roundTrips() throws Exception {
+        PresetTable table = new PresetTable();
+        table.setSpeed(0, 3.5f);
+        table.setSpeed(2, 1.25f);
+
+        PresetTable decoded = PresetTable.decode(table.encode());
+        assertEquals("ultrafast:3.5,veryfast:1.25", table.encode());
+        assertEquals(3.5f, decoded.getSpeed(0), 0);
+        assertEquals(0, decoded.getSpeed(1), 0);
+        assertNull(PresetTable.decode("placebo:1.0"));
+        assertNull(PresetTable.decode(""));
+    }
+}
@@ -0,0 +1,79 @@
+package com.crust87.videocropper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RangeListTest {
+    @Test
+    public void add_keepsRangesSortedAndMergesOverlaps() throws Exception {
+        RangeList ranges = new RangeList();
+        assertEquals(0, ranges.add(5000000, 6000000));
+        assertEquals(0, ranges.add(1000000, 2000000));
+        assertEquals(2, ranges.add(8000000, 9000000));
+        assertEquals(3, ranges.size());
+
+        // touches the first and overlaps the second
+        assertEquals(0, ranges.add(2000000, 5500000));
+        assertEquals(2, ranges.size());
+        assertEquals(1000000, ranges.getStartUs(0));
+        assertEquals(6000000, ranges.getEndUs(0));
+        assertEquals(8000000, ranges.getStartUs(1));
+
+        // covers everything
+        assertEquals(0, ranges.add(0, 10000000));
+        assertEquals(1, ranges.size());
+        assertEquals(10000000, ranges.getDurationUs());
+    }
+
+    @Test
+    public void add_growsPastCapacity() throws Exception {
+        RangeList ranges = new RangeList();
+        for(int i = 20; i > 0; i--) {
+            ranges.add(i * 1000000L, i * 1000000L + 500000);
+        }
+
+        assertEquals(20, ranges.size());
+        assertEquals(1000000, ranges.getStartUs(0));
+        assertEquals(20500000, ranges.getEndUs(19));
+        assertEquals(19, new RangeList(ranges).indexOf(20000000));
+    }
+
+    @Test
+    public void indexOf_hitsRangesOnly() throws Exception {
+        RangeList ranges = new RangeList();
+        ranges.add(1000000, 2000000);
+        ranges.add(4000000, 6000000);
+
+        assertEquals(-1, ranges.indexOf(999999));
+        assertEquals(0, ranges.indexOf(1000000));
+        assertEquals(-1, ranges.indexOf(2000000));
+        assertEquals(1, ranges.indexOf(5999999));
+        assertEquals(-1, ranges.indexOf(7000000));
+
+        assertEquals(0, ranges.firstEndingAfter(0));
+        assertEquals(1, ranges.firstEndingAfter(2000000));
+        assertEquals(2, ranges.firstEndingAfter(6000000));
+
+        ranges.remove(0);
+        assertEquals(0, ranges.indexOf(4000000));
+        assertEquals(1, ranges.size());
+    }
+
+    @Test
+    public void getSourceTimeUs_mapsJoinedTime() throws Exception {
+        RangeList ranges = new RangeList();
+        ranges.add(1000000, 2000000);
+        ranges.add(4000000, 6000000);
+
+        assertEquals(1500000, ranges.getSourceTimeUs(500000));
+        assertEquals(4000000, ranges.getSourceTimeUs(1000000));
+        assertEquals(5500000, ranges.getSourceTimeUs(2500000));
+        assertEquals(6000000, ranges.getSourceTimeUs(9000000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsEmptyRange() throws Exception {
+        new RangeList().add(1000000, 1000000);
+    }
+}
@@ -0,0 +1,125 @@
+package com.crust87.videocropper;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mSource;
+    private CropCommandBuilder mBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        mSource = mFolder.newFile("in.mp4");
+        writeBytes(mSource, 200 * 1024, 1);
+
+        mBuilder = new CropCommandBuilder()
+                .setInput(mSource.getAbsolutePath())
+                .setOutput(new File(mFolder.getRoot(), "out.mp4").getAbsolutePath())
+                .setVideoSize(1920, 1080)
+                .setCrop(100, 20, 600, 450)
+                .setRatio(4, 3)
+                .setRange(12000000, 8500000);
+    }
+
+    @Test
+    public void restore_hitsAfterStore() throws Exception {
+        ResultCache cache = new ResultCache(mFolder.newFolder("results"), 1024 * 1024);
+        String key = ResultCache.getKey(mBuilder, 0);
+        File output = new File(mBuilder.getOutput());
+
+        assertFalse(cache.restore(key, mBuilder.getOutputs()));
+
+        writeBytes(output, 1000, 7);
+        cache.store(key, mBuilder.getOutputs());
+        output.delete();
+
+        assertTrue(cache.restore(ResultCache.getKey(mBuilder, 0), mBuilder.getOutputs()));
+        assertEquals(1000, output.length());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void getKey_changesWithParametersAndSource() throws Exception {
+        String key = ResultCache.getKey(mBuilder, 0);
+
+        assertEquals(key, ResultCache.getKey(mBuilder, 0));
+        assertNotEquals(key, ResultCache.getKey(mBuilder, CropJob.FLAG_SMART_CUT));
+        assertNotEquals(key, ResultCache.getKey(mBuilder.setRange(12000000, 9000000), 0));
+
+        // same size and time, different content
+        String sourceKey = ResultCache.getKey(mBuilder, 0);
+        long modified = mSource.lastModified();
+        writeBytes(mSource, 200 * 1024, 2);
+        mSource.setLastModified(modified);
+        assertNotEquals(sourceKey, ResultCache.getKey(mBuilder, 0));
+    }
+
+    @Test
+    public void getKey_ignoresFlagsThatKeepTheOutput() throws Exception {
+        String key = ResultCache.getKey(mBuilder, 0);
+
+        // segmented and extracted audio encodes write the same file as a plain one
+        assertEquals(key, ResultCache.getKey(mBuilder, CropJob.FLAG_SEGMENTED | CropJob.FLAG_EXTRACT_AUDIO));
+        assertEquals(ResultCache.getKey(mBuilder, CropJob.FLAG_SMART_CUT), ResultCache.getKey(mBuilder, CropJob.FLAG_SMART_CUT | CropJob.FLAG_SEGMENTED));
+    }
+
+    @Test
+    public void getKey_namesSourceByContentNotPath() throws Exception {
+        // a descriptor source has another /proc path in every run of the app
+        File moved = new File(mFolder.getRoot(), "moved.mp4");
+        writeBytes(moved, 200 * 1024, 1);
+        moved.setLastModified(mSource.lastModified());
+
+        assertEquals(ResultCache.getKey(mBuilder, 0), ResultCache.getKey(mBuilder.setInput(moved.getAbsolutePath()), 0));
+    }
+
+    @Test
+    public void store_evictsLeastRecentlyUsed() throws Exception {
+        File dir = mFolder.newFolder("results");
+        ResultCache cache = new ResultCache(dir, 2500);
+        File output = mFolder.newFile("result.mp4");
+        writeBytes(output, 1000, 3);
+        List<String> outputs = Collections.singletonList(output.getAbsolutePath());
+
+        cache.store("a", outputs);
+        cache.store("b", outputs);
+        File[] stored = dir.listFiles();
+        for(File file: stored) {
+            file.setLastModified(file.lastModified() - 60000);
+        }
+        assertTrue(cache.restore("a", outputs));
+        cache.store("c", outputs);
+
+        assertEquals(2, dir.listFiles().length);
+        assertTrue(cache.restore("a", outputs));
+        assertFalse(cache.restore("b", outputs));
+        assertTrue(cache.restore("c", outputs));
+    }
+
+    private static void writeBytes(File file, int length, int seed) throws Exception {
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * seed);
+        }
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
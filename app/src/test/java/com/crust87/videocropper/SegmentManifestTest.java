@@ -0,0 +1,68 @@
+package com.crust87.videocropper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import static org.junit.Assert.*;
+
+public class SegmentManifestTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void write_roundTripsChunksAndState() throws Exception {
+        File file = new File(mFolder.getRoot(), "manifest.txt");
+
+        SegmentManifest manifest = new SegmentManifest("/in.mp4|crop|12000000|30000000", new long[] {12000000, 22033000, 32066000, 42000000});
+        manifest.setDone(1, true);
+        manifest.write(file);
+
+        SegmentManifest read = SegmentManifest.read(file);
+        assertNotNull(read);
+        assertEquals("/in.mp4|crop|12000000|30000000", read.getKey());
+        assertEquals(3, read.getChunkCount());
+        assertEquals(22033000, read.getChunkStartUs(1));
+        assertEquals(42000000, read.getChunkEndUs(2));
+        assertFalse(read.isDone(0));
+        assertTrue(read.isDone(1));
+        assertFalse(read.isComplete());
+        assertEquals(10033000, read.getDoneUs());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void read_growsPastInitialCapacity() throws Exception {
+        File file = new File(mFolder.getRoot(), "manifest.txt");
+        long[] boundaries = new long[41];
+        for(int i = 0; i < boundaries.length; i++) {
+            boundaries[i] = i * 1000000L;
+        }
+
+        SegmentManifest manifest = new SegmentManifest("key", boundaries);
+        for(int i = 0; i < manifest.getChunkCount(); i++) {
+            manifest.setDone(i, true);
+        }
+        manifest.write(file);
+
+        SegmentManifest read = SegmentManifest.read(file);
+        assertEquals(40, read.getChunkCount());
+        assertEquals(40000000, read.getChunkEndUs(39));
+        assertTrue(read.isComplete());
+    }
+
+    @Test
+    public void read_rejectsMissingOrBrokenFiles() throws Exception {
+        assertNull(SegmentManifest.read(new File(mFolder.getRoot(), "none.txt")));
+
+        File file = mFolder.newFile("broken.txt");
+        FileWriter writer = new FileWriter(file);
+        writer.write("key=abc\n0 1000 1\n2000 3000 0\n");
+        writer.close();
+
+        assertNull(SegmentManifest.read(file));
+    }
+}
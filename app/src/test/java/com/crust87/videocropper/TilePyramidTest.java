@@ -0,0 +1,43 @@
+package com.crust87.videocropper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TilePyramidTest {
+    // an hour, tenth of a second tiles up to tiles at least a minute apart
+    private final TilePyramid mPyramid = new TilePyramid(3600000000L, 100000, 60000000);
+
+    @Test
+    public void levels_doubleIntervalUpToMax() throws Exception {
+        assertEquals(11, mPyramid.getLevelCount());
+        assertEquals(100000, mPyramid.getIntervalUs(0));
+        assertEquals(102400000, mPyramid.getIntervalUs(10));
+        assertEquals(36000, mPyramid.getTileCount(0));
+        assertEquals(36, mPyramid.getTileCount(10));
+        assertEquals(1, new TilePyramid(1000000, 100000, 0).getLevelCount());
+
+        // tile i of a level is at the time of tile 2i below
+        assertEquals(mPyramid.getTimeUs(3, 14), mPyramid.getTimeUs(4, 7));
+    }
+
+    @Test
+    public void getLevel_picksCoarsestIntervalWithinSpan() throws Exception {
+        assertEquals(0, mPyramid.getLevel(50000));
+        assertEquals(0, mPyramid.getLevel(199999));
+        assertEquals(1, mPyramid.getLevel(200000));
+        assertEquals(10, mPyramid.getLevel(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void getIndex_clampsToTiles() throws Exception {
+        assertEquals(0, mPyramid.getIndex(2, -1000));
+        assertEquals(2, mPyramid.getIndex(2, 999999));
+        assertEquals(35, mPyramid.getIndex(10, 3600000000L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyVideo() throws Exception {
+        new TilePyramid(0, 100000, 1000000);
+    }
+}
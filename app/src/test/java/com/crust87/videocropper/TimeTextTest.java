@@ -0,0 +1,56 @@
+package com.crust87.videocropper;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+public class TimeTextTest {
+    @Test
+    public void setMillis_formatsSecondsWithPrefix() throws Exception {
+        TimeText text = new TimeText("seek: ");
+
+        assertEquals("seek: 0.000", text.setMillis(0).toString());
+        assertEquals("seek: 12.345", text.setMillis(12345).toString());
+        assertEquals("seek: 3600.007", text.setMillis(3600007).toString());
+        assertEquals("seek: -1.500", text.setMillis(-1500).toString());
+        assertEquals(12, text.setMillis(10050).length());
+    }
+
+    @Test
+    public void setMillis_doesNotAllocate() throws Exception {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        final long threadId = Thread.currentThread().getId();
+        DragStats stats = new DragStats(new DragStats.AllocationCounter() {
+            @Override
+            public long getCount() {
+                return threadBean.getThreadAllocatedBytes(threadId);
+            }
+        });
+
+        TimeText text = new TimeText("duration: ");
+
+        // warm up so the measured loop runs compiled code
+        for(int i = 0; i < 20000; i++) {
+            text.setMillis(i);
+        }
+
+        stats.reset();
+        for(int i = 0; i < 1000; i++) {
+            stats.beginEvent();
+            text.setMillis(i * 37);
+            stats.endEvent();
+        }
+
+        assertEquals(1000, stats.getEventCount());
+        assertEquals(0, stats.getAllocations());
+    }
+}
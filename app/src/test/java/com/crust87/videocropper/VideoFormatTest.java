@@ -0,0 +1,36 @@
+package com.crust87.videocropper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VideoFormatTest {
+    @Test
+    public void parse_readsProfileAndLevelFromSps() throws Exception {
+        // start code, SPS header, high profile, no constraints, level 4.0
+        VideoFormat format = VideoFormat.parse(new byte[] {0, 0, 0, 1, 0x67, 100, 0, 40, 0x1f}, 1920, 1080, 15000000);
+
+        assertNotNull(format);
+        assertEquals("high", format.getProfile());
+        assertEquals("4.0", format.getLevel());
+        assertEquals(1920, format.getWidth());
+        assertEquals("15000k", format.getBitrateOption());
+
+        // constrained baseline without start code, level 1b
+        format = VideoFormat.parse(new byte[] {0x67, 66, (byte) 0xd0, 11, 0x1f}, 176, 144, 64000);
+        assertEquals("baseline", format.getProfile());
+        assertEquals("1b", format.getLevel());
+    }
+
+    @Test
+    public void parse_rejectsStreamsThatCantBeMatched() throws Exception {
+        // high 10 and high 4:2:2 need other bit depths or chroma
+        assertNull(VideoFormat.parse(new byte[] {0, 0, 1, 0x67, 110, 0, 40}, 1920, 1080, 15000000));
+        assertNull(VideoFormat.parse(new byte[] {0, 0, 1, 0x67, 122, 0, 40}, 1920, 1080, 15000000));
+        // PPS instead of SPS, unknown bitrate, unknown size
+        assertNull(VideoFormat.parse(new byte[] {0, 0, 1, 0x68, 100, 0, 40}, 1920, 1080, 15000000));
+        assertNull(VideoFormat.parse(new byte[] {0, 0, 1, 0x67, 100, 0, 40}, 1920, 1080, 0));
+        assertNull(VideoFormat.parse(new byte[] {0, 0, 1, 0x67, 100, 0, 40}, 0, 0, 15000000));
+        assertNull(VideoFormat.parse(new byte[] {0, 0, 1}, 1920, 1080, 15000000));
+    }
+}
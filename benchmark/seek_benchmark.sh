@@ -0,0 +1,50 @@
+#!/bin/sh
+#
+# Android-VideoCropper
+# https://github.com/crust87/Android-VideoCropper
+#
+# Compare output seeking (-ss after -i) with input seeking (coarse -ss before -i,
+# exact -ss after it) for the crop command, at several seek offsets.
+# Needs ffmpeg and GNU time on the host.
+#
+# usage: seek_benchmark.sh [source duration seconds] [offset seconds...]
+#
+
+FFMPEG=${FFMPEG:-ffmpeg}
+TIME=${TIME:-/usr/bin/time}
+WORK=${WORK:-$(mktemp -d)}
+DURATION=${1:-1800}
+[ $# -gt 0 ] && shift
+OFFSETS=${*:-"10 300 900 1780"}
+PREROLL=5
+CLIP=10
+
+SOURCE="$WORK/source.mp4"
+if [ ! -f "$SOURCE" ]; then
+    echo "generating ${DURATION}s source in $SOURCE"
+    "$FFMPEG" -v error -y -f lavfi -i "testsrc=size=1280x720:rate=30:duration=$DURATION" \
+        -c:v libx264 -preset ultrafast -g 60 "$SOURCE" || exit 1
+fi
+
+crop() {
+    "$FFMPEG" -v error -y "$@" -t $CLIP -vcodec libx264 -profile:v baseline -level 3.1 -b:v 1000k \
+        -vf "crop=720:720:280:0, scale=640:640, setsar=1:1" "$WORK/result.mp4"
+}
+
+measure() {
+    $TIME -f "%e %U %S" -o "$WORK/time.txt" "$@" || exit 1
+    awk '{ printf "%8.2f %8.2f", $1, $2 + $3 }' "$WORK/time.txt"
+}
+
+printf "%8s | %-17s | %-17s\n" "offset" "output seek" "input seek"
+printf "%8s | %8s %8s | %8s %8s\n" "s" "wall" "cpu" "wall" "cpu"
+
+for OFFSET in $OFFSETS; do
+    COARSE=$((OFFSET > PREROLL ? OFFSET - PREROLL : 0))
+    EXACT=$((OFFSET - COARSE))
+
+    OUTPUT_SEEK=$(measure crop -i "$SOURCE" -ss $OFFSET)
+    INPUT_SEEK=$(measure crop -ss $COARSE -i "$SOURCE" -ss $EXACT)
+
+    printf "%8s | %s | %s\n" "$OFFSET" "$OUTPUT_SEEK" "$INPUT_SEEK"
+done
@@ -0,0 +1,88 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.crust87.videocropper.benchmark;
+
+import com.crust87.videocropper.CropCommandBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// command generation cost per crop job, run with -prof gc to see allocation per job
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CropCommandBuilderBenchmark {
+    @Param({"0", "90", "180", "270"})
+    public int rotate;
+
+    private CropCommandBuilder mBuilder;
+
+    @Setup
+    public void setUp() {
+        mBuilder = new CropCommandBuilder()
+                .setInput("/sdcard/DCIM/Camera/source.mp4")
+                .setOutput("/sdcard/result.mp4")
+                .setVideoSize(1920, 1080)
+                .setRotate(rotate)
+                .setCrop(240, 0, 1440, 1080)
+                .setRatio(4, 3)
+                .setRange(95250000, 12500000);
+    }
+
+    @Benchmark
+    public List<String> build() {
+        return mBuilder.build();
+    }
+
+    @Benchmark
+    public List<String> buildTrimOnly() {
+        return mBuilder.setRatio(0, 0).build();
+    }
+
+    @Benchmark
+    public List<String> newBuilderAndBuild() {
+        return new CropCommandBuilder()
+                .setInput("/sdcard/DCIM/Camera/source.mp4")
+                .setOutput("/sdcard/result.mp4")
+                .setVideoSize(1920, 1080)
+                .setRotate(rotate)
+                .setCrop(240, 0, 1440, 1080)
+                .setRatio(4, 3)
+                .setRange(95250000, 12500000)
+                .build();
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Android-VideoCropper
+ * https://github.com/crust87/Android-VideoCropper
+ *
+ * Mabi
+ * crust87@gmail.com
+ * last modify 2026-10-18
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.crust87.videocropper.benchmark;
+
+import com.crust87.videocropper.CropCommandBuilder;
+import com.crust87.videocropper.KeyframeIndex;
+import com.crust87.videocropper.RangeList;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * End to end crop benchmark on a desktop JVM against a host ffmpeg.
+ * Synthetic clips are generated with lavfi testsrc at several sizes, durations and rotations, and cropped by
+ * commands from the same CropCommandBuilder setup as MainActivity.cropVideo, after the same key frame probe.
+ * Reports throughput in source seconds per wall second, peak RSS of ffmpeg from -benchmark, and output size.
+ * Results can be saved and compared with a saved baseline, a slower configuration fails the run.
+ *
+ * usage: CropPipelineBenchmark [--ffmpeg path] [--work dir] [--quick] [--out file] [--baseline file] [--tolerance 0.2]
+ */
+public class CropPipelineBenchmark {
+    private static final int[][] SIZES = {{640, 360}, {1280, 720}, {1920, 1080}};
+    private static final int[] DURATIONS = {10, 60};
+    private static final int[] ROTATIONS = {0, 90};
+    private static final String[] JOBS = {"crop", "trim", "ranges"};
+
+    private static final String MAXRSS = "maxrss=";
+
+    // Attributes
+    private final String mFFmpeg;
+    private final File mWorkDir;
+
+    // Constructors
+    public CropPipelineBenchmark(String ffmpeg, File workDir) {
+        mFFmpeg = ffmpeg;
+        mWorkDir = workDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String ffmpeg = "ffmpeg";
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "videocropper-benchmark");
+        boolean quick = false;
+        File out = null;
+        File baseline = null;
+        double tolerance = 0.2;
+
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--ffmpeg":
+                    ffmpeg = args[++i];
+                    break;
+                case "--work":
+                    workDir = new File(args[++i]);
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                case "--out":
+                    out = new File(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = new File(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        if(!workDir.isDirectory() && !workDir.mkdirs()) {
+            throw new IOException("can't make " + workDir);
+        }
+
+        CropPipelineBenchmark benchmark = new CropPipelineBenchmark(ffmpeg, workDir);
+        List<Result> results = benchmark.runAll(quick);
+
+        if(out != null) {
+            writeResults(results, out);
+        }
+        if(baseline != null && !compare(results, readResults(baseline), tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    // every job on every clip, quick runs the smallest size and shortest duration only
+    public List<Result> runAll(boolean quick) throws IOException {
+        List<Result> results = new ArrayList<>();
+
+        System.out.println(String.format(Locale.US, "%-28s %8s %8s %10s %10s", "configuration", "wall s", "x real", "rss MB", "output KB"));
+        for(int[] size: quick ? new int[][] {SIZES[0]} : SIZES) {
+            for(int duration: quick ? new int[] {DURATIONS[0]} : DURATIONS) {
+                for(int rotation: ROTATIONS) {
+                    File clip = generateClip(size[0], size[1], duration, rotation);
+                    KeyframeIndex keyframes = probeKeyframes(clip);
+
+                    for(String job: JOBS) {
+                        Result result = runJob(job, clip, size[0], size[1], duration, rotation, keyframes);
+                        results.add(result);
+                        System.out.println(result);
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    // testsrc video with a sine tone, so audio copy and filtering are measured too
+    // older ffmpeg writes the rotation from the rotate tag, newer builds leave the clip unrotated
+    private File generateClip(int width, int height, int duration, int rotation) throws IOException {
+        File clip = new File(mWorkDir, "testsrc_" + width + "x" + height + "_" + duration + "s_" + rotation + ".mp4");
+        if(clip.length() > 0) {
+            return clip;
+        }
+
+        File part = new File(clip.getPath() + ".part.mp4");
+        List<String> commands = new ArrayList<>();
+        commands.add("-y");
+        commands.add("-f");
+        commands.add("lavfi");
+        commands.add("-i");
+        commands.add("testsrc=size=" + width + "x" + height + ":rate=30:duration=" + duration);
+        commands.add("-f");
+        commands.add("lavfi");
+        commands.add("-i");
+        commands.add("sine=frequency=440:duration=" + duration);
+        commands.add("-vcodec");
+        commands.add("libx264");
+        commands.add("-preset");
+        commands.add("ultrafast");
+        commands.add("-pix_fmt");
+        commands.add("yuv420p");
+        commands.add("-g");
+        commands.add("60");
+        commands.add("-c:a");
+        commands.add("aac");
+        commands.add("-metadata:s:v:0");
+        commands.add("rotate=" + rotation);
+        commands.add(part.getAbsolutePath());
+
+        execute(commands, null);
+        if(!part.renameTo(clip)) {
+            throw new IOException("can't rename " + part);
+        }
+
+        return clip;
+    }
+
+    // the probe KeyframeProbe falls back to on the device
+    private KeyframeIndex probeKeyframes(File clip) throws IOException {
+        final List<Long> times = new ArrayList<>();
+        execute(CropCommandBuilder.buildKeyframeProbe(clip.getAbsolutePath()), new OnLineListener() {
+            @Override
+            public void onLine(String line) {
+                long timeUs = KeyframeIndex.parseShowInfoTime(line);
+                if(timeUs >= 0) {
+                    times.add(timeUs);
+                }
+            }
+        });
+
+        long[] timesUs = new long[times.size()];
+        for(int i = 0; i < timesUs.length; i++) {
+            timesUs[i] = times.get(i);
+        }
+
+        return new KeyframeIndex(timesUs, timesUs.length);
+    }
+
+    // builder set up like MainActivity.newCommandBuilder, a centered square crop of the displayed frame
+    // the range is the middle half of the clip, an edit list takes three pieces of it
+    private Result runJob(String job, File clip, int width, int height, int duration, int rotation, KeyframeIndex keyframes) throws IOException {
+        int displayWidth = rotation % 180 == 0 ? width : height;
+        int displayHeight = rotation % 180 == 0 ? height : width;
+        int side = Math.min(displayWidth, displayHeight);
+        long durationUs = duration * 1000000L;
+        long seekUs = durationUs / 4;
+        long rangeUs = durationUs / 2;
+
+        File output = new File(mWorkDir, "result_" + job + ".mp4");
+        CropCommandBuilder builder = new CropCommandBuilder()
+                .setInput(clip.getAbsolutePath())
+                .setOutput(output.getAbsolutePath())
+                .setVideoSize(width, height)
+                .setRotate(rotation)
+                .setKeyframes(keyframes);
+
+        switch(job) {
+            case "trim":
+                // CropQueue starts a trim at the key frame before the seek
+                long snappedUs = Math.max(0, keyframes.floor(seekUs));
+                builder.setCrop(0, 0, displayWidth, displayHeight).setRatio(0, 0).setRange(snappedUs, seekUs + rangeUs - snappedUs);
+                break;
+            case "ranges":
+                RangeList ranges = new RangeList();
+                long pieceUs = rangeUs / 6;
+                for(int i = 0; i < 3; i++) {
+                    long startUs = seekUs + i * 2 * pieceUs;
+                    ranges.add(startUs, startUs + pieceUs);
+                }
+                builder.setCrop((displayWidth - side) / 2, (displayHeight - side) / 2, side, side).setRatio(1, 1).setRanges(ranges);
+                break;
+            default:
+                builder.setCrop((displayWidth - side) / 2, (displayHeight - side) / 2, side, side).setRatio(1, 1).setRange(seekUs, rangeUs);
+                break;
+        }
+
+        List<String> commands = new ArrayList<>();
+        commands.add("-benchmark");
+        for(String command: builder.build()) {
+            // the packaged ffmpeg doesn't rotate on decode, the builder maps the crop to the stored frame
+            if(command.equals("-i")) {
+                commands.add("-noautorotate");
+            }
+            commands.add(command);
+        }
+
+        final long[] maxRssKb = new long[1];
+        long startNs = System.nanoTime();
+        execute(commands, new OnLineListener() {
+            @Override
+            public void onLine(String line) {
+                long rss = parseMaxRss(line);
+                if(rss > 0) {
+                    maxRssKb[0] = rss;
+                }
+            }
+        });
+        long wallNs = System.nanoTime() - startNs;
+
+        Result result = new Result();
+        result.configuration = width + "x" + height + "_" + duration + "s_" + rotation + "_" + job;
+        result.wallSeconds = wallNs / 1e9;
+        result.throughput = builder.getDurationUs() / 1e6 / result.wallSeconds;
+        result.maxRssKb = maxRssKb[0];
+        result.outputBytes = output.length();
+        output.delete();
+
+        return result;
+    }
+
+    // bench: maxrss=12345kB, newer builds print KiB
+    static long parseMaxRss(String line) {
+        int start = line.indexOf(MAXRSS);
+        if(start < 0 || !line.startsWith("bench:")) {
+            return -1;
+        }
+
+        start += MAXRSS.length();
+        int end = start;
+        while(end < line.length() && Character.isDigit(line.charAt(end))) {
+            end++;
+        }
+
+        return end > start ? Long.parseLong(line.substring(start, end)) : -1;
+    }
+
+    // run the host ffmpeg, output lines go to the listener, a failed run throws with its last line
+    private void execute(List<String> commands, OnLineListener onLineListener) throws IOException {
+        List<String> processCommands = new ArrayList<>(commands.size() + 3);
+        processCommands.add(mFFmpeg);
+        processCommands.add("-hide_banner");
+        processCommands.add("-nostdin");
+        processCommands.addAll(commands);
+
+        Process process = new ProcessBuilder(processCommands).redirectErrorStream(true).start();
+        String lastLine = null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lastLine = line;
+                if(onLineListener != null) {
+                    onLineListener.onLine(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        try {
+            int exitValue = process.waitFor();
+            if(exitValue != 0) {
+                throw new IOException("ffmpeg exited with " + exitValue + ": " + lastLine + "\n" + processCommands);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+    }
+
+    // tab separated: configuration, wall seconds, throughput, peak RSS kB, output bytes
+    private static void writeResults(List<Result> results, File file) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            for(Result result: results) {
+                writer.write(result.configuration + "\t" + result.wallSeconds + "\t" + result.throughput + "\t"
+                        + result.maxRssKb + "\t" + result.outputBytes + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    // throughput by configuration
+    private static Map<String, Double> readResults(File file) throws IOException {
+        Map<String, Double> throughputs = new HashMap<>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if(fields.length >= 3) {
+                    throughputs.put(fields[0], Double.parseDouble(fields[2]));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return throughputs;
+    }
+
+    // false when a configuration is slower than its baseline by more than the tolerance
+    private static boolean compare(List<Result> results, Map<String, Double> baseline, double tolerance) {
+        boolean passed = true;
+        for(Result result: results) {
+            Double before = baseline.get(result.configuration);
+            if(before != null && result.throughput < before * (1 - tolerance)) {
+                System.out.println(String.format(Locale.US, "REGRESSION %s: %.2fx real, baseline %.2fx", result.configuration, result.throughput, before));
+                passed = false;
+            }
+        }
+
+        return passed;
+    }
+
+    public static class Result {
+        public String configuration;
+        public double wallSeconds;
+        public double throughput;		// source seconds per wall second
+        public long maxRssKb;			// 0 when ffmpeg didn't report it
+        public long outputBytes;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-28s %8.2f %8.2f %10.1f %10d", configuration, wallSeconds, throughput, maxRssKb / 1024.0, outputBytes / 1024);
+        }
+    }
+
+    private interface OnLineListener {
+        void onLine(String line);
+    }
+}